@@ -0,0 +1,153 @@
+//******************************************************************************
+//
+// File:    AStar.java
+// Package: ---
+// Unit:    Class AStar
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class AStar is an A* search engine over a {@link Graph}. The open list is
+ * an {@link IndexedHeap} with decrease-key, and the g-scores, parents and
+ * closed set are plain arrays indexed by <TT>City.n</TT>, so every expansion
+ * costs O(log n). Vertices are marked with the number of the search that
+ * reached or closed them, and a g-score with an older mark reads as
+ * infinite, so a short search does not pay to clear the arrays first.
+ * <P>
+ * Vertices with equal f-scores are expanded in alphabetical order of their
+ * names, the same order <TT>Merica</TT>'s <TT>FNodeComparator</TT> used.
+ * <P>
+ * An AStar object keeps its arrays between searches and is not thread safe;
+ * give each thread its own.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class AStar implements PathTree {
+
+	// private data members
+	private Graph graph;
+	private final IndexedHeap open;
+	private final double[] g;
+	private final int[] parent;
+	private final int[] seen;
+	private final int[] closed;
+	private int generation;
+	private int expanded;
+
+	/**
+	 * Construct an A* engine for a graph
+	 *
+	 * @param graph the graph to search
+	 */
+	public AStar(Graph graph) {
+		this.graph = graph;
+		this.open = new IndexedHeap(graph.v, graph.rank);
+		this.g = new double[graph.v];
+		this.parent = new int[graph.v];
+		this.seen = new int[graph.v];
+		this.closed = new int[graph.v];
+	}
+
+	/**
+	 * Search another version of the graph from now on, keeping the arrays
+	 * of this engine
+	 *
+	 * @param graph a version of the graph with the same vertices
+	 */
+	void rebind(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Search for the shortest path from start to goal, guided by the
+	 * straight line distance
+	 *
+	 * @param start the start vertex
+	 * @param goal the goal vertex
+	 * @return the goal if it was reached, otherwise the last vertex
+	 * 			taken off the open list
+	 */
+	public int search(int start, int goal) {
+		return search(start, goal, graph);
+	}
+
+	/**
+	 * Search for the shortest path from start to goal
+	 *
+	 * @param start the start vertex
+	 * @param goal the goal vertex
+	 * @param heuristic estimates the distance left to the goal
+	 * @return the goal if it was reached, otherwise the last vertex
+	 * 			taken off the open list
+	 */
+	public int search(int start, int goal, Heuristic heuristic) {
+		open.clear();
+		if(++generation == 0) {
+			// the marks wrapped around, so old ones could look current
+			Arrays.fill(seen, 0);
+			Arrays.fill(closed, 0);
+			generation = 1;
+		}
+		expanded = 0;
+		seen[start] = generation;
+		g[start] = 0;
+		parent[start] = -1;
+		open.offer(start, heuristic.estimate(start, goal));
+		int u = start, w, end;
+		double ng;
+		while(!open.isEmpty()) {
+			u = open.poll();
+			if(u == goal) {
+				break;
+			}
+			closed[u] = generation;
+			expanded++;
+			end = graph.offsets[u + 1];
+			for(int i = graph.offsets[u]; i < end; i++) {
+				w = graph.neighbors[i];
+				if(closed[w] == generation) continue;
+				ng = graph.weights[i] + g[u];
+				if(seen[w] != generation || ng < g[w]) {
+					seen[w] = generation;
+					g[w] = ng;
+					parent[w] = u;
+					open.offer(w, ng + heuristic.estimate(w, goal));
+				}
+			}
+		}
+		return u;
+	}
+
+	/**
+	 * Get the vertex a vertex was reached from in the last search
+	 *
+	 * @param u the vertex
+	 * @return the previous vertex on the path, or -1 for the start
+	 */
+	@Override
+	public int parent(int u) {
+		return parent[u];
+	}
+
+	/**
+	 * Get the length of the best path to a vertex found in the last search
+	 *
+	 * @param u the vertex
+	 * @return the g-score of <I>u</I>, infinite if it was not reached
+	 */
+	public double g(int u) {
+		return seen[u] == generation ? g[u] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Get the number of vertices expanded in the last search
+	 *
+	 * @return the number of expanded vertices
+	 */
+	public int expanded() {
+		return expanded;
+	}
+}
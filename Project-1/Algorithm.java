@@ -0,0 +1,28 @@
+//******************************************************************************
+//
+// File:    Algorithm.java
+// Package: ---
+// Unit:    Enum Algorithm
+//
+//******************************************************************************
+
+/**
+ * The search algorithms {@link Merica} can run
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public enum Algorithm {
+	/**
+	 * breadth first search, fewest hops
+	 */
+	BFS,
+	/**
+	 * depth first search
+	 */
+	DFS,
+	/**
+	 * A* search, shortest distance
+	 */
+	ASTAR
+}
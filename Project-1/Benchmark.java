@@ -0,0 +1,278 @@
+//******************************************************************************
+//
+// File:    Benchmark.java
+// Package: ---
+// Unit:    Class Benchmark
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Class Benchmark times the searches and the data loading so that a slower
+ * build shows up before it is deployed. Every benchmark is warmed up first
+ * and then run for a fixed time. Reported are throughput, average time per
+ * operation, bytes allocated per operation by the measuring thread and
+ * the number of garbage collections during the run.
+ * <P>
+ * Searches run on city.dat/edge.dat, if they are in the working directory,
+ * and on synthetic grid graphs of the requested sizes. Queries are grouped
+ * by straight-line distance into near, mid and far thirds.
+ * <P>
+ * Usage: java Benchmark [-time millis] [vertices ...]
+ * <BR>runs each benchmark for the given time (1000 ms by default) on
+ * synthetic graphs of the given sizes (1000 and 100000 by default).
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Benchmark {
+
+	private static final String EDGE_DATA = "edge.dat";
+	private static final String CITY_DATA = "city.dat";
+	private static final int QUERIES = 64;
+	private static final long SEED = 42;
+	private static final String[] BUCKETS = {"near", "mid", "far"};
+
+	// results are folded in here so the searches cannot be optimized away
+	private static volatile long sink;
+
+	// private data members
+	private final long millis;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	/*
+	 * private constructor
+	 */
+	private Benchmark(long millis) {
+		this.millis = millis;
+	}
+
+	/**
+	 * Interface Operation is one benchmarked call
+	 */
+	private interface Operation {
+		/**
+		 * run the operation once
+		 * @param i how many times it has run before
+		 * @return any value depending on the result
+		 * @throws Exception if the operation fails
+		 */
+		long run(int i) throws Exception;
+	}
+
+	/*
+	 * private helper function, warm up then measure one operation
+	 */
+	private void measure(String name, String graph, Operation op)
+			throws Exception {
+		long end = System.nanoTime() + millis * 1000000L / 2;
+		int i = 0;
+		long check = 0;
+		while(System.nanoTime() < end) {
+			check += op.run(i++);
+		}
+		long gcs = collections(), bytes = allocated();
+		long start = System.nanoTime();
+		end = start + millis * 1000000L;
+		int ops = 0;
+		long now;
+		do {
+			check += op.run(ops++);
+			now = System.nanoTime();
+		} while(now < end);
+		bytes = bytes < 0 ? -1 : allocated() - bytes;
+		gcs = collections() - gcs;
+		sink += check;
+		double seconds = (now - start) / 1e9;
+		System.out.printf("%-22s %-12s %12.1f %14.2f %14s %5d%n", name, graph,
+				ops / seconds, seconds * 1e6 / ops,
+				bytes < 0 ? "n/a" : String.valueOf(bytes / ops), gcs);
+	}
+
+	/*
+	 * private helper function, bytes allocated by this thread so far, or a
+	 * negative number if the JVM cannot tell
+	 */
+	private long allocated() {
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean bean =
+				(com.sun.management.ThreadMXBean) threads;
+			if(bean.isThreadAllocatedMemorySupported() &&
+					bean.isThreadAllocatedMemoryEnabled()) {
+				return bean.getThreadAllocatedBytes(
+						Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static long collections() {
+		long count = 0;
+		for(GarbageCollectorMXBean gc :
+				ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	/*
+	 * private helper function, benchmark the loaders on the bundled files
+	 */
+	private void loading() throws Exception {
+		measure("DataParser.load", CITY_DATA, new Operation() {
+			@Override
+			public long run(int i) throws IOException {
+				return DataParser.load(CITY_DATA, EDGE_DATA).v;
+			}
+		});
+		final int cores = Runtime.getRuntime().availableProcessors();
+		measure("ParallelGraphBuilder", CITY_DATA, new Operation() {
+			@Override
+			public long run(int i) throws IOException {
+				return ParallelGraphBuilder.load(CITY_DATA, EDGE_DATA, cores).v;
+			}
+		});
+	}
+
+	/*
+	 * private helper function, benchmark every search on one graph
+	 */
+	private void searches(final Merica america, String graph)
+			throws Exception {
+		City[][][] buckets = queries(america);
+		for(int b = 0; b < buckets.length; b++) {
+			final City[][] pairs = buckets[b];
+			measure("bfs/" + BUCKETS[b], graph, new Operation() {
+				@Override
+				public long run(int i) {
+					City[] q = pairs[i % pairs.length];
+					return america.bfs(q[0], q[1]).hops();
+				}
+			});
+			measure("dfs/" + BUCKETS[b], graph, new Operation() {
+				@Override
+				public long run(int i) {
+					City[] q = pairs[i % pairs.length];
+					return america.dfs(q[0], q[1]).hops();
+				}
+			});
+			measure("aStar/" + BUCKETS[b], graph, new Operation() {
+				@Override
+				public long run(int i) {
+					City[] q = pairs[i % pairs.length];
+					return america.aStar(q[0], q[1]).hops();
+				}
+			});
+		}
+	}
+
+	/*
+	 * private helper function, random start/goal pairs split by distance
+	 */
+	private static City[][][] queries(Merica america) {
+		Random random = new Random(SEED);
+		City[][] pairs = new City[QUERIES * BUCKETS.length][];
+		for(int i = 0; i < pairs.length; i++) {
+			pairs[i] = new City[] {
+				america.cities.get(random.nextInt(america.v)),
+				america.cities.get(random.nextInt(america.v))
+			};
+		}
+		Arrays.sort(pairs, new Comparator<City[]>() {
+			@Override
+			public int compare(City[] o1, City[] o2) {
+				return Double.compare(o1[0].distanceTo(o1[1]),
+						o2[0].distanceTo(o2[1]));
+			}
+		});
+		City[][][] buckets = new City[BUCKETS.length][][];
+		for(int b = 0; b < buckets.length; b++) {
+			buckets[b] = Arrays.copyOfRange(pairs, b * QUERIES,
+					(b + 1) * QUERIES);
+		}
+		return buckets;
+	}
+
+	/*
+	 * private helper function, a square grid over the continental US with
+	 * jittered cities, every city joined to its right and lower neighbors
+	 * and some to a diagonal one
+	 */
+	private static Merica grid(int vertices) {
+		Random random = new Random(SEED);
+		int side = (int) Math.ceil(Math.sqrt(vertices));
+		double dlat = 24.0 / side, dlon = 58.0 / side;
+		GraphBuilder builder = new GraphBuilder();
+		for(int i = 0; i < vertices; i++) {
+			int row = i / side, col = i % side;
+			builder.addCity("S" + i, "XX",
+				25 + (row + random.nextDouble()) * dlat,
+				67 + (col + random.nextDouble()) * dlon);
+		}
+		for(int i = 0; i < vertices; i++) {
+			int col = i % side;
+			if(col + 1 < side && i + 1 < vertices) {
+				builder.addEdge(i, i + 1);
+			}
+			if(i + side < vertices) {
+				builder.addEdge(i, i + side);
+			}
+			if(col + 1 < side && i + side + 1 < vertices &&
+					random.nextInt(4) == 0) {
+				builder.addEdge(i, i + side + 1);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * main method
+	 * @param args [0] = "-time", [1] = milliseconds per benchmark, both
+	 * 			optional, then the sizes of the synthetic graphs
+	 * @throws Exception if a benchmark fails
+	 */
+	public static void main(String[] args) throws Exception {
+		long millis = 1000;
+		int first = 0;
+		if(args.length >= 2 && args[0].equals("-time")) {
+			millis = Long.parseLong(args[1]);
+			first = 2;
+		}
+		ArrayList<Integer> sizes = new ArrayList<Integer>();
+		for(int i = first; i < args.length; i++) {
+			sizes.add(Integer.parseInt(args[i]));
+		}
+		if(sizes.isEmpty()) {
+			sizes.add(1000);
+			sizes.add(100000);
+		}
+		Benchmark benchmark = new Benchmark(millis);
+		System.out.printf("%-22s %-12s %12s %14s %14s %5s%n", "benchmark",
+				"graph", "ops/s", "us/op", "B/op", "gcs");
+		if(Files.exists(Paths.get(CITY_DATA)) &&
+				Files.exists(Paths.get(EDGE_DATA))) {
+			benchmark.loading();
+			benchmark.searches(DataParser.load(CITY_DATA, EDGE_DATA),
+					CITY_DATA);
+		} else {
+			System.err.println("No " + CITY_DATA + "/" + EDGE_DATA +
+					", skipping the bundled graph");
+		}
+		for(int size : sizes) {
+			benchmark.searches(grid(size), "grid-" + size);
+		}
+	}
+}
@@ -0,0 +1,254 @@
+//******************************************************************************
+//
+// File:    BidirectionalAStar.java
+// Package: ---
+// Unit:    Class BidirectionalAStar
+//
+//******************************************************************************
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class BidirectionalAStar searches from the start and from the goal at the
+ * same time until the two frontiers prove they have found the shortest path.
+ * <P>
+ * Both directions use the average potential
+ * p(u) = (h(u, goal) - h(u, start)) / 2, forward with +p and backward with
+ * -p. Those potentials give every edge the same reduced length in both
+ * directions, so the search may stop as soon as the smallest keys of the two
+ * frontiers add up to the best path found so far.
+ * <P>
+ * The two frontiers can run on the calling thread, taking turns, or on two
+ * threads. Distances are kept in {@link AtomicLongArray}s so that each
+ * direction always sees the other's progress. Each side marks the vertices
+ * it reaches with the number of the search, and a distance with an older
+ * mark reads as infinite, so nothing is cleared between searches.
+ * <P>
+ * A BidirectionalAStar object keeps its arrays between searches and is not
+ * thread safe; give each thread its own.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class BidirectionalAStar {
+
+	// private data members
+	private Graph graph;
+	private final Side forward, backward;
+	private Heuristic heuristic;
+	private int start, goal;
+	private volatile boolean done;
+	private volatile double best;
+	private int meet;
+	private int generation;
+
+	/**
+	 * Construct a bidirectional A* engine for a graph
+	 *
+	 * @param graph the graph to search
+	 */
+	public BidirectionalAStar(Graph graph) {
+		this.graph = graph;
+		this.forward = new Side(1);
+		this.backward = new Side(-1);
+	}
+
+	/**
+	 * Search another version of the graph from now on, keeping the arrays
+	 * of this engine
+	 *
+	 * @param graph a version of the graph with the same vertices
+	 */
+	void rebind(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Search for the shortest path from start to goal
+	 *
+	 * @param start the start vertex
+	 * @param goal the goal vertex
+	 * @param heuristic estimates the distance between two vertices
+	 * @param parallel true to run the backward search on another thread
+	 * @return the vertex where the two searches met, or -1 if the goal
+	 * 			cannot be reached
+	 */
+	public int search(int start, int goal, Heuristic heuristic,
+			boolean parallel) {
+		this.heuristic = heuristic;
+		this.start = start;
+		this.goal = goal;
+		this.done = false;
+		this.best = Double.POSITIVE_INFINITY;
+		this.meet = -1;
+		if(++generation == 0) {
+			// the marks wrapped around, so old ones could look current
+			forward.clearMarks();
+			backward.clearMarks();
+			generation = 1;
+		}
+		forward.reset(start);
+		backward.reset(goal);
+		if(start == goal) {
+			best = 0;
+			return start;
+		}
+		if(parallel) {
+			ForkJoinTask<?> task = ForkJoinPool.commonPool().submit(backward);
+			forward.run();
+			task.join();
+		} else {
+			while(!done) {
+				if(forward.top <= backward.top) {
+					forward.step();
+				} else {
+					backward.step();
+				}
+			}
+		}
+		return meet;
+	}
+
+	/**
+	 * Get the next vertex toward the start on the path found
+	 *
+	 * @param u a vertex between the start and the meeting vertex
+	 * @return the previous vertex, or -1 for the start
+	 */
+	public int forwardParent(int u) {
+		return forward.parent[u];
+	}
+
+	/**
+	 * Get the next vertex toward the goal on the path found
+	 *
+	 * @param u a vertex between the meeting vertex and the goal
+	 * @return the next vertex, or -1 for the goal
+	 */
+	public int backwardParent(int u) {
+		return backward.parent[u];
+	}
+
+	/**
+	 * Get the length of the path found
+	 *
+	 * @return shortest distance, infinite if unreachable
+	 */
+	public double distance() {
+		return best;
+	}
+
+	/**
+	 * Get the number of vertices expanded in the last search, both
+	 * directions together
+	 *
+	 * @return the number of expanded vertices
+	 */
+	public int expanded() {
+		return forward.expanded + backward.expanded;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private double potential(int u) {
+		return (heuristic.estimate(u, goal) - heuristic.estimate(u, start)) / 2;
+	}
+
+	/*
+	 * private helper function, record a path through u
+	 */
+	private synchronized void meet(int u, double length) {
+		if(length < best) {
+			best = length;
+			meet = u;
+		}
+	}
+
+	/**
+	 * Class Side is the search in one direction
+	 */
+	private class Side implements Runnable {
+
+		private final int sign;
+		private final IndexedHeap heap;
+		private final AtomicLongArray dist;
+		private final AtomicIntegerArray seen;
+		private final int[] parent;
+		private Side other;
+		private volatile double top;
+		private int expanded;
+
+		private Side(int sign) {
+			this.sign = sign;
+			this.heap = new IndexedHeap(graph.v, graph.rank);
+			this.dist = new AtomicLongArray(graph.v);
+			this.seen = new AtomicIntegerArray(graph.v);
+			this.parent = new int[graph.v];
+		}
+
+		private void reset(int source) {
+			other = this == forward ? backward : forward;
+			heap.clear();
+			reach(source, 0);
+			parent[source] = -1;
+			expanded = 0;
+			heap.offer(source, sign * potential(source));
+			top = heap.peekKey();
+		}
+
+		private void clearMarks() {
+			for(int u = 0; u < graph.v; u++) {
+				seen.set(u, 0);
+			}
+		}
+
+		// the distance before the mark, so the other side never reads a
+		// current mark with an old distance
+		private void reach(int u, double d) {
+			dist.set(u, Double.doubleToRawLongBits(d));
+			seen.set(u, generation);
+		}
+
+		private double dist(int u) {
+			return seen.get(u) == generation ?
+					Double.longBitsToDouble(dist.get(u)) :
+					Double.POSITIVE_INFINITY;
+		}
+
+		@Override
+		public void run() {
+			while(!done) {
+				step();
+			}
+		}
+
+		// expand the vertex with the smallest key, or finish the search
+		private void step() {
+			if(heap.isEmpty() || top + other.top >= best) {
+				done = true;
+				return;
+			}
+			int u = heap.poll(), w;
+			expanded++;
+			double du = dist(u), nd, dw;
+			for(int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				w = graph.neighbors[i];
+				nd = du + graph.weights[i];
+				if(nd < dist(w)) {
+					reach(w, nd);
+					parent[w] = u;
+					heap.offer(w, nd + sign * potential(w));
+					dw = other.dist(w);
+					if(nd + dw < best) {
+						meet(w, nd + dw);
+					}
+				}
+			}
+			top = heap.isEmpty() ? Double.POSITIVE_INFINITY : heap.peekKey();
+		}
+	}
+}
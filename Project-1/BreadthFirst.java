@@ -0,0 +1,131 @@
+//******************************************************************************
+//
+// File:    BreadthFirst.java
+// Package: ---
+// Unit:    Class BreadthFirst
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class BreadthFirst is a breadth first search engine over a {@link Graph}.
+ * The queue, the visited marks and the parents are <TT>int[]</TT>s indexed
+ * by <TT>City.n</TT>. A city is visited when its mark equals the number
+ * of the current search, so nothing is cleared between searches. A city
+ * is marked when it is queued and never queued again, so the queue never
+ * holds more than every city once and does not need to wrap around.
+ * <P>
+ * Neighbors are queued in the order the graph's rows keep them, which is
+ * alphabetical, so it finds exactly the paths <TT>Merica</TT>'s list based
+ * breadth first search found after sorting every row by name.
+ * <P>
+ * A BreadthFirst object keeps its arrays between searches and is not thread
+ * safe; give each thread its own.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class BreadthFirst implements PathTree {
+
+	// private data members
+	private Graph graph;
+	private final int[] queue;
+	private final int[] visited;
+	private final int[] parent;
+	private int generation;
+	private int expanded;
+
+	/**
+	 * Construct a breadth first search engine for a graph
+	 *
+	 * @param graph the graph to search
+	 */
+	public BreadthFirst(Graph graph) {
+		this.graph = graph;
+		this.queue = new int[graph.v];
+		this.visited = new int[graph.v];
+		this.parent = new int[graph.v];
+	}
+
+	/**
+	 * Search another version of the graph from now on, keeping the arrays
+	 * of this engine
+	 *
+	 * @param graph a version of the graph with the same vertices
+	 */
+	void rebind(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Search for a path from start to goal with the fewest hops
+	 *
+	 * @param start the start vertex
+	 * @param goal the goal vertex
+	 * @return the goal if it was reached, otherwise the last vertex
+	 * 			taken off the queue
+	 */
+	public int search(int start, int goal) {
+		if(++generation == 0) {
+			// the marks wrapped around, so old ones could look current
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+		expanded = 0;
+		int head = 0, tail = 0, u = start, w;
+		parent[start] = -1;
+		visit(start);
+		queue[tail++] = start;
+		while(head < tail) {
+			u = queue[head++];
+			if(u == goal) {
+				return u;
+			}
+			expanded++;
+			for(int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+				w = graph.neighbors[i];
+				if(!isVisited(w)) {
+					visit(w);
+					parent[w] = u;
+					queue[tail++] = w;
+				}
+			}
+		}
+		return u;
+	}
+
+	/**
+	 * Get the previous vertex on the path found
+	 *
+	 * @param u a vertex on the path
+	 * @return the vertex before <I>u</I>, or -1 for the start
+	 */
+	@Override
+	public int parent(int u) {
+		return parent[u];
+	}
+
+	/**
+	 * Get the number of vertices expanded in the last search
+	 *
+	 * @return the number of expanded vertices
+	 */
+	public int expanded() {
+		return expanded;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private boolean isVisited(int u) {
+		return visited[u] == generation;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void visit(int u) {
+		visited[u] = generation;
+	}
+}
@@ -0,0 +1,593 @@
+//******************************************************************************
+//
+// File:    ContractionHierarchy.java
+// Package: ---
+// Unit:    Class ContractionHierarchy
+//
+//******************************************************************************
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class ContractionHierarchy is a preprocessed form of a {@link Merica} that
+ * answers shortest path queries by searching only "upward".
+ * <P>
+ * Preprocessing contracts the vertices one at a time, cheapest first by
+ * edge difference (shortcuts added minus edges removed). Contracting a
+ * vertex removes it from the graph and adds a shortcut between two of its
+ * neighbors whenever the path through it is the only shortest path between
+ * them. Every vertex keeps the edges it had when it was contracted; those
+ * all lead to vertices contracted later, and form the upward graph.
+ * <P>
+ * A query runs Dijkstra upward from both ends at once. The shortest path
+ * meets at its highest vertex, and the shortcuts on it are unpacked back
+ * into the original edges.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class ContractionHierarchy {
+
+	private static final int MAGIC = 0x4d434831; // "MCH1"
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".ch";
+
+	// witness searches give up after settling this many vertices
+	private static final int WITNESS_LIMIT = 500;
+
+	/**
+	 * the graph this hierarchy was built from. Shortcuts are not repaired
+	 * when the graph is updated, so build a new hierarchy after updates.
+	 */
+	public final Merica america;
+
+	// upward graph in CSR form, mid is -1 for an original edge, otherwise
+	// the vertex the shortcut bypasses
+	private final int[] level;
+	private final int[] upOffsets;
+	private final int[] upTo;
+	private final double[] upWeight;
+	private final int[] upMid;
+	private final ThreadLocal<Query> query;
+
+	/*
+	 * private constructor
+	 */
+	private ContractionHierarchy(Merica america, int[] level, int[] upOffsets,
+			int[] upTo, double[] upWeight, int[] upMid) {
+		this.america = america;
+		this.level = level;
+		this.upOffsets = upOffsets;
+		this.upTo = upTo;
+		this.upWeight = upWeight;
+		this.upMid = upMid;
+		this.query = new ThreadLocal<Query>() {
+			@Override
+			protected Query initialValue() {
+				return new Query();
+			}
+		};
+	}
+
+	/**
+	 * Build the hierarchy for a graph
+	 *
+	 * @param america the graph
+	 * @return the hierarchy
+	 */
+	public static ContractionHierarchy build(Merica america) {
+		return new Builder(america.graph()).build(america);
+	}
+
+	/**
+	 * Load the hierarchy saved next to an edge file, building and saving it
+	 * first if it is missing or older than the edge file
+	 *
+	 * @param america the graph parsed from the edge file
+	 * @param edgeDat filename of the edge data
+	 * @return the hierarchy
+	 * @throws IOException if problem reading or writing the hierarchy
+	 */
+	public static ContractionHierarchy loadOrBuild(Merica america,
+			String edgeDat) throws IOException {
+		Path edges = Paths.get(edgeDat);
+		Path file = fileFor(edges);
+		if(Files.exists(file) && Files.getLastModifiedTime(file)
+				.compareTo(Files.getLastModifiedTime(edges)) >= 0) {
+			return load(file, america);
+		}
+		ContractionHierarchy ch = build(america);
+		ch.save(file);
+		return ch;
+	}
+
+	/**
+	 * Get the file a hierarchy is saved in next to an edge file, the edge
+	 * file name with its extension replaced by <TT>.ch</TT>
+	 *
+	 * @param edgeDat the edge file
+	 * @return the hierarchy file
+	 */
+	public static Path fileFor(Path edgeDat) {
+		String name = edgeDat.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return edgeDat.resolveSibling(
+				(dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+	}
+
+	/**
+	 * Save the hierarchy
+	 *
+	 * @param file the file to write
+	 * @throws IOException if problem writing the file
+	 */
+	public void save(Path file) throws IOException {
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(level.length);
+			out.writeInt(upTo.length);
+			for(int i = 0; i < level.length; i++) out.writeInt(level[i]);
+			for(int i = 0; i < upOffsets.length; i++) out.writeInt(upOffsets[i]);
+			for(int i = 0; i < upTo.length; i++) out.writeInt(upTo[i]);
+			for(int i = 0; i < upTo.length; i++) out.writeDouble(upWeight[i]);
+			for(int i = 0; i < upTo.length; i++) out.writeInt(upMid[i]);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a saved hierarchy
+	 *
+	 * @param file the file to read
+	 * @param america the graph the hierarchy was built from
+	 * @return the hierarchy
+	 * @throws IOException if problem reading the file, or if it does not
+	 * 			hold a whole, valid hierarchy for this graph
+	 */
+	public static ContractionHierarchy load(Path file, Merica america)
+			throws IOException {
+		DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(file)));
+		try {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a contraction hierarchy: " + file);
+			}
+			int v = in.readInt(), m = in.readInt();
+			if(v != america.v) {
+				throw new IOException("Contraction hierarchy " + file +
+						" has " + v + " cities, expected " + america.v);
+			}
+			if(m < 0 || Files.size(file) != 16L + 4L * v + 4L * (v + 1L) +
+					16L * m) {
+				throw new IOException("Truncated or damaged contraction " +
+						"hierarchy: " + file);
+			}
+			int[] level = new int[v];
+			int[] upOffsets = new int[v + 1];
+			int[] upTo = new int[m];
+			double[] upWeight = new double[m];
+			int[] upMid = new int[m];
+			for(int i = 0; i < v; i++) level[i] = in.readInt();
+			for(int i = 0; i <= v; i++) upOffsets[i] = in.readInt();
+			for(int i = 0; i < m; i++) upTo[i] = in.readInt();
+			for(int i = 0; i < m; i++) upWeight[i] = in.readDouble();
+			for(int i = 0; i < m; i++) upMid[i] = in.readInt();
+			if(!valid(level, upOffsets, upTo, upWeight, upMid)) {
+				throw new IOException("Damaged contraction hierarchy: " +
+						file);
+			}
+			return new ContractionHierarchy(america, level, upOffsets,
+					upTo, upWeight, upMid);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Get the number of edges in the upward graph, original edges and
+	 * shortcuts together
+	 *
+	 * @return number of upward edges
+	 */
+	public int edgeCount() {
+		return upTo.length;
+	}
+
+	/**
+	 * shortest path using the hierarchy
+	 * @param start
+	 * @param goal
+	 * @return shortest path, or a path holding only the start if the goal
+	 * 			cannot be reached
+	 */
+	public SearchResult route(City start, City goal) {
+		return america.result("Contraction Hierarchy Search Results: ",
+				query.get().route(start.n, goal.n));
+	}
+
+	/*
+	 * private helper function, whether a loaded hierarchy is one a query
+	 * can safely search: the levels are a ranking of the cities, every
+	 * upward edge stays in range and climbs, its weight is a finite length,
+	 * and every shortcut bypasses a city below both of its ends with an
+	 * upward edge to each, so unpacking a path always comes to an end
+	 */
+	private static boolean valid(int[] level, int[] upOffsets, int[] upTo,
+			double[] upWeight, int[] upMid) {
+		int v = level.length, m = upTo.length, to, mid;
+		boolean[] used = new boolean[v];
+		for(int l : level) {
+			if(l < 0 || l >= v || used[l]) {
+				return false;
+			}
+			used[l] = true;
+		}
+		if(upOffsets[0] != 0 || upOffsets[v] != m) {
+			return false;
+		}
+		for(int u = 0; u < v; u++) {
+			if(upOffsets[u] > upOffsets[u + 1]) {
+				return false;
+			}
+			for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++) {
+				to = upTo[i];
+				mid = upMid[i];
+				if(to < 0 || to >= v || level[to] <= level[u] ||
+						!(upWeight[i] >= 0) ||
+						Double.isInfinite(upWeight[i]) || mid < -1 ||
+						mid >= v || mid >= 0 && level[mid] >= level[u]) {
+					return false;
+				}
+			}
+		}
+		for(int u = 0; u < v; u++) {
+			for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++) {
+				mid = upMid[i];
+				if(mid >= 0 && (!linked(upOffsets, upTo, mid, u) ||
+						!linked(upOffsets, upTo, mid, upTo[i]))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function, whether there is an upward edge from a to b
+	 */
+	private static boolean linked(int[] upOffsets, int[] upTo, int a,
+			int b) {
+		for(int i = upOffsets[a]; i < upOffsets[a + 1]; i++) {
+			if(upTo[i] == b) return true;
+		}
+		return false;
+	}
+
+	/*
+	 * private helper function, index of the upward edge from a to b
+	 */
+	private int arc(int a, int b) {
+		for(int i = upOffsets[a]; i < upOffsets[a + 1]; i++) {
+			if(upTo[i] == b) return i;
+		}
+		throw new IllegalStateException("Missing edge " + a + "-" + b);
+	}
+
+	/**
+	 * Class Query holds the scratch space of one thread's queries
+	 */
+	private class Query {
+
+		private final double[][] dist = new double[2][];
+		private final int[][] parent = new int[2][];
+		private final int[][] parentArc = new int[2][];
+		private final int[][] stamp = new int[2][];
+		private final IndexedHeap[] heap = new IndexedHeap[2];
+		// the way down from the meeting vertex, and the shortcuts being
+		// unpacked
+		private final int[] down = new int[level.length];
+		private int[] stack = new int[48];
+		private int generation;
+
+		private Query() {
+			for(int d = 0; d < 2; d++) {
+				dist[d] = new double[level.length];
+				parent[d] = new int[level.length];
+				parentArc[d] = new int[level.length];
+				stamp[d] = new int[level.length];
+				heap[d] = new IndexedHeap(level.length, level);
+			}
+		}
+
+		private ArrayList<City> route(int s, int t) {
+			if(++generation == 0) {
+				// the stamps wrapped around, so old ones could look current
+				Arrays.fill(stamp[0], 0);
+				Arrays.fill(stamp[1], 0);
+				generation = 1;
+			}
+			heap[0].clear();
+			heap[1].clear();
+			reach(0, s, 0, -1, -1);
+			reach(1, t, 0, -1, -1);
+			double best = Double.POSITIVE_INFINITY;
+			int meet = -1, d, u, w;
+			while(true) {
+				boolean forward = !heap[0].isEmpty() &&
+						heap[0].peekKey() < best;
+				boolean backward = !heap[1].isEmpty() &&
+						heap[1].peekKey() < best;
+				if(!forward && !backward) break;
+				d = forward && (!backward ||
+						heap[0].peekKey() <= heap[1].peekKey()) ? 0 : 1;
+				u = heap[d].poll();
+				if(stamp[1 - d][u] == generation &&
+						dist[d][u] + dist[1 - d][u] < best) {
+					best = dist[d][u] + dist[1 - d][u];
+					meet = u;
+				}
+				for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++) {
+					w = upTo[i];
+					if(stamp[d][w] != generation ||
+							dist[d][u] + upWeight[i] < dist[d][w]) {
+						reach(d, w, dist[d][u] + upWeight[i], u, i);
+					}
+				}
+			}
+			ArrayList<City> path = new ArrayList<City>();
+			path.add(america.cities.get(s));
+			if(meet < 0) {
+				return path;
+			}
+			int n = 0;
+			for(u = meet; u != s; u = parent[0][u]) {
+				down[n++] = u;
+			}
+			while(n > 0) {
+				u = down[--n];
+				unpack(parent[0][u], u, parentArc[0][u], path);
+			}
+			for(u = meet; u != t; u = parent[1][u]) {
+				unpack(u, parent[1][u], parentArc[1][u], path);
+			}
+			return path;
+		}
+
+		private void reach(int d, int v, double g, int from, int arc) {
+			stamp[d][v] = generation;
+			dist[d][v] = g;
+			parent[d][v] = from;
+			parentArc[d][v] = arc;
+			heap[d].offer(v, g);
+		}
+
+		// append the original vertices after a on edge a-b, in order
+		private void unpack(int a, int b, int arc, ArrayList<City> path) {
+			int top = 0, x, y, mid;
+			stack[top++] = a;
+			stack[top++] = b;
+			stack[top++] = arc;
+			while(top > 0) {
+				arc = stack[--top];
+				y = stack[--top];
+				x = stack[--top];
+				mid = upMid[arc];
+				if(mid < 0) {
+					path.add(america.cities.get(y));
+					continue;
+				}
+				if(top + 6 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2 + 6);
+				}
+				stack[top++] = mid;
+				stack[top++] = y;
+				stack[top++] = arc(mid, y);
+				stack[top++] = x;
+				stack[top++] = mid;
+				stack[top++] = arc(mid, x);
+			}
+		}
+	}
+
+	/**
+	 * Class Builder contracts the vertices of a graph
+	 */
+	private static class Builder {
+
+		private final int v;
+		// remaining graph, both directions of every edge
+		private final int[][] to;
+		private final double[][] weight;
+		private final int[][] mid;
+		private final int[] degree;
+		private final int[] contractedNeighbors;
+		// witness search scratch space
+		private final double[] dist;
+		private final int[] stamp;
+		private final int[] ids;
+		private final IndexedHeap heap;
+		private int generation;
+
+		private Builder(Graph graph) {
+			this.v = graph.v;
+			this.to = new int[v][];
+			this.weight = new double[v][];
+			this.mid = new int[v][];
+			this.degree = new int[v];
+			this.contractedNeighbors = new int[v];
+			this.dist = new double[v];
+			this.stamp = new int[v];
+			this.ids = new int[v];
+			for(int u = 0; u < v; u++) {
+				ids[u] = u;
+				int n = Math.max(graph.degree(u), 1);
+				to[u] = new int[n];
+				weight[u] = new double[n];
+				mid[u] = new int[n];
+			}
+			this.heap = new IndexedHeap(v, ids);
+			for(int u = 0; u < v; u++) {
+				for(int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+					link(u, graph.neighbors[i], graph.weights[i], -1);
+				}
+			}
+		}
+
+		private ContractionHierarchy build(Merica america) {
+			IndexedHeap order = new IndexedHeap(v, ids);
+			for(int u = 0; u < v; u++) {
+				order.offer(u, priority(u));
+			}
+			int[] level = new int[v];
+			int[] upOffsets = new int[v + 1];
+			int[][] upTo = new int[v][];
+			double[][] upWeight = new double[v][];
+			int[][] upMid = new int[v][];
+			int next = 0, u;
+			double p;
+			while(!order.isEmpty()) {
+				u = order.poll();
+				p = priority(u);
+				if(!order.isEmpty() && p > order.peekKey()) {
+					order.offer(u, p);
+					continue;
+				}
+				level[u] = next++;
+				upTo[u] = Arrays.copyOf(to[u], degree[u]);
+				upWeight[u] = Arrays.copyOf(weight[u], degree[u]);
+				upMid[u] = Arrays.copyOf(mid[u], degree[u]);
+				contract(u, true);
+			}
+			for(u = 0; u < v; u++) {
+				upOffsets[u + 1] = upOffsets[u] + upTo[u].length;
+			}
+			int m = upOffsets[v];
+			int[] flatTo = new int[m];
+			double[] flatWeight = new double[m];
+			int[] flatMid = new int[m];
+			for(u = 0; u < v; u++) {
+				System.arraycopy(upTo[u], 0, flatTo, upOffsets[u], upTo[u].length);
+				System.arraycopy(upWeight[u], 0, flatWeight, upOffsets[u],
+						upTo[u].length);
+				System.arraycopy(upMid[u], 0, flatMid, upOffsets[u],
+						upTo[u].length);
+			}
+			return new ContractionHierarchy(america, level, upOffsets,
+					flatTo, flatWeight, flatMid);
+		}
+
+		// edge difference plus contracted neighbors, to spread the
+		// contraction evenly over the graph
+		private double priority(int u) {
+			return contract(u, false) - degree[u] + contractedNeighbors[u];
+		}
+
+		// count, and if asked add, the shortcuts contracting u needs
+		private int contract(int u, boolean apply) {
+			int shortcuts = 0, n = degree[u];
+			int[] nbr = Arrays.copyOf(to[u], n);
+			double[] w = Arrays.copyOf(weight[u], n);
+			for(int i = 0; i < n; i++) {
+				double limit = 0;
+				for(int j = i + 1; j < n; j++) {
+					limit = Math.max(limit, w[i] + w[j]);
+				}
+				if(limit == 0) continue;
+				witness(nbr[i], u, limit);
+				for(int j = i + 1; j < n; j++) {
+					if(stamp[nbr[j]] != generation ||
+							dist[nbr[j]] > w[i] + w[j]) {
+						shortcuts++;
+						if(apply) {
+							link(nbr[i], nbr[j], w[i] + w[j], u);
+							link(nbr[j], nbr[i], w[i] + w[j], u);
+						}
+					}
+				}
+			}
+			if(apply) {
+				for(int i = 0; i < n; i++) {
+					unlink(nbr[i], u);
+					contractedNeighbors[nbr[i]]++;
+				}
+			}
+			return shortcuts;
+		}
+
+		// Dijkstra from s in the remaining graph, avoiding u
+		private void witness(int s, int u, double limit) {
+			if(++generation == 0) {
+				Arrays.fill(stamp, 0);
+				generation = 1;
+			}
+			heap.clear();
+			stamp[s] = generation;
+			dist[s] = 0;
+			heap.offer(s, 0);
+			int settled = 0, x, y;
+			while(!heap.isEmpty() && heap.peekKey() <= limit &&
+					settled++ < WITNESS_LIMIT) {
+				x = heap.poll();
+				for(int i = 0; i < degree[x]; i++) {
+					y = to[x][i];
+					if(y == u) continue;
+					if(stamp[y] != generation ||
+							dist[x] + weight[x][i] < dist[y]) {
+						stamp[y] = generation;
+						dist[y] = dist[x] + weight[x][i];
+						heap.offer(y, dist[y]);
+					}
+				}
+			}
+		}
+
+		// add edge a-b, or shorten it if it is already there
+		private void link(int a, int b, double w, int m) {
+			for(int i = 0; i < degree[a]; i++) {
+				if(to[a][i] == b) {
+					if(w < weight[a][i]) {
+						weight[a][i] = w;
+						mid[a][i] = m;
+					}
+					return;
+				}
+			}
+			if(degree[a] == to[a].length) {
+				int n = to[a].length * 2;
+				to[a] = Arrays.copyOf(to[a], n);
+				weight[a] = Arrays.copyOf(weight[a], n);
+				mid[a] = Arrays.copyOf(mid[a], n);
+			}
+			to[a][degree[a]] = b;
+			weight[a][degree[a]] = w;
+			mid[a][degree[a]] = m;
+			degree[a]++;
+		}
+
+		// remove edge a-b from a's list
+		private void unlink(int a, int b) {
+			for(int i = 0; i < degree[a]; i++) {
+				if(to[a][i] == b) {
+					degree[a]--;
+					to[a][i] = to[a][degree[a]];
+					weight[a][i] = weight[a][degree[a]];
+					mid[a][i] = mid[a][degree[a]];
+					return;
+				}
+			}
+		}
+	}
+}
@@ -7,20 +7,73 @@
 //******************************************************************************
 
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 /**
  * handles all data parsing
+ * 
+ * Files are read through a memory-mapped {@link Tokenizer}, so they are
+ * never held in memory as lines of text.
  * @author Jimi Ford (jhf3617)
  *
  */
 public class DataParser {
 
+	/**
+	 * parse cities and edges straight into a graph, without creating an
+	 * intermediate list of edge objects
+	 * @param cityDat filename of city data
+	 * @param edgeDat filename of edge data
+	 * @return parsed graph
+	 * @throws IOException if problem reading either file
+	 */
+	public static Merica load(String cityDat, String edgeDat) 
+			throws IOException {
+		return load(cityDat, edgeDat, Metric.PLANAR);
+	}
+
+	/**
+	 * parse cities and edges straight into a graph that measures
+	 * distances with the given metric
+	 * @param cityDat filename of city data
+	 * @param edgeDat filename of edge data
+	 * @param metric how the graph measures distances
+	 * @return parsed graph
+	 * @throws IOException if problem reading either file
+	 */
+	public static Merica load(String cityDat, String edgeDat, Metric metric) 
+			throws IOException {
+		GraphBuilder builder = new GraphBuilder(metric);
+		Tokenizer in = new Tokenizer(Paths.get(cityDat));
+		try {
+			while(in.nextLine()) {
+				if(in.tokens() <= 1) continue;
+				check(in, cityDat, 4);
+				builder.addCity(
+					in.string(0), // name
+					in.string(1), // state
+					in.parseDouble(2), // lat
+					in.parseDouble(3)  // lon
+				);
+			}
+		} finally {
+			in.close();
+		}
+		NameIndex lookup = new NameIndex(builder.cities(), false);
+		in = new Tokenizer(Paths.get(edgeDat));
+		try {
+			while(in.nextLine()) {
+				if(in.tokens() <= 1) continue;
+				builder.addEdge(city(in, lookup, edgeDat, 0), 
+						city(in, lookup, edgeDat, 1));
+			}
+		} finally {
+			in.close();
+		}
+		return builder.build();
+	}
+
 	/**
 	 * parse cities
 	 * @param cityDat filename of city data
@@ -29,22 +82,24 @@ public class DataParser {
 	 */
 	public static ArrayList<City> getCities(String cityDat) 
 			throws IOException {
-		List<String> lines = Files.readAllLines(Paths.get(cityDat), 
-				Charset.defaultCharset());
-		ArrayList<City> result = new ArrayList<City>(lines.size());
-		String[] temp;
+		ArrayList<City> result = new ArrayList<City>();
 		City city;
 		int count = 0;
-		for(String line : lines) {
-			temp = line.split("\\s+");
-			if(temp.length <= 1) continue;
-			city = new City(count++,
-				temp[0], // name
-				temp[1], // state
-				Double.parseDouble(temp[2]), // lat
-				Double.parseDouble(temp[3])  // lon
-			);
-			result.add(city);
+		Tokenizer in = new Tokenizer(Paths.get(cityDat));
+		try {
+			while(in.nextLine()) {
+				if(in.tokens() <= 1) continue;
+				check(in, cityDat, 4);
+				city = new City(count++,
+					in.string(0), // name
+					in.string(1), // state
+					in.parseDouble(2), // lat
+					in.parseDouble(3)  // lon
+				);
+				result.add(city);
+			}
+		} finally {
+			in.close();
 		}
 		return result;
 	}
@@ -58,31 +113,45 @@ public class DataParser {
  	 */
 	public static ArrayList<UndirectedEdge> getSetEdges(String edgeDat, ArrayList<City> cities) 
 			throws IOException {
-		
-		List<String> lines = Files.readAllLines(Paths.get(edgeDat), 
-				Charset.defaultCharset());
-		ArrayList<UndirectedEdge> edges = new ArrayList<UndirectedEdge>(lines.size());
-		HashMap<String, Integer> lookup = new HashMap<String, Integer>();
-		for(int i = 0; i < cities.size(); i++) {
-			lookup.put(cities.get(i).name, i);
-		}
-		UndirectedEdge edge;
-		String[] split;
+		ArrayList<UndirectedEdge> edges = new ArrayList<UndirectedEdge>();
+		NameIndex lookup = new NameIndex(cities, false);
 		City city1, city2;
-		String name1, name2;
-		int n1, n2;
 		int count = 0;
-		for(String line : lines) {
-			split = line.split("\\s+");
-			if(split.length <= 1) continue;
-			name1 = split[0];
-			name2 = split[1];
-			n1 = lookup.get(name1);
-			n2 = lookup.get(name2);
-			city1 = cities.get(n1);
-			city2 = cities.get(n2);
-			edges.add(new UndirectedEdge(count++, city1, city2));
+		Tokenizer in = new Tokenizer(Paths.get(edgeDat));
+		try {
+			while(in.nextLine()) {
+				if(in.tokens() <= 1) continue;
+				city1 = cities.get(city(in, lookup, edgeDat, 0));
+				city2 = cities.get(city(in, lookup, edgeDat, 1));
+				edges.add(new UndirectedEdge(count++, city1, city2));
+			}
+		} finally {
+			in.close();
 		}
 		return edges;
 	}
+	
+	/*
+	 * private helper function
+	 */
+	private static void check(Tokenizer in, String file, int fields) 
+			throws IOException {
+		if(in.tokens() < fields) {
+			throw new IOException(file + ":" + in.line() + ": expected " + 
+					fields + " fields");
+		}
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private static int city(Tokenizer in, NameIndex lookup, String file, 
+			int token) throws IOException {
+		int n = in.find(lookup, token);
+		if(n < 0) {
+			throw new IOException(file + ":" + in.line() + ": no such city: " +
+					in.string(token));
+		}
+		return n;
+	}
 }
@@ -0,0 +1,141 @@
+//******************************************************************************
+//
+// File:    DepthFirst.java
+// Package: ---
+// Unit:    Class DepthFirst
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class DepthFirst is a depth first search engine over a {@link Graph}. The
+ * open list is an <TT>int[]</TT> stack, and the visited marks and the
+ * parents are <TT>int[]</TT>s indexed by <TT>City.n</TT>. A city is
+ * visited when its mark equals the number of the current search, so
+ * nothing is cleared between searches.
+ * <P>
+ * It finds exactly the paths <TT>Merica</TT>'s list based depth first
+ * search found: a city is marked when it is pushed and never pushed again,
+ * children are pushed in reverse alphabetical order so the alphabetically
+ * first is expanded next, and the goal is recognized as soon as it is a
+ * neighbor of the city being expanded.
+ * <P>
+ * A DepthFirst object keeps its arrays between searches and is not thread
+ * safe; give each thread its own.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class DepthFirst implements PathTree {
+
+	// private data members
+	private Graph graph;
+	private final int[] stack;
+	private final int[] visited;
+	private final int[] parent;
+	private int generation;
+	private int expanded;
+
+	/**
+	 * Construct a depth first search engine for a graph
+	 *
+	 * @param graph the graph to search
+	 */
+	public DepthFirst(Graph graph) {
+		this.graph = graph;
+		this.stack = new int[graph.v];
+		this.visited = new int[graph.v];
+		this.parent = new int[graph.v];
+	}
+
+	/**
+	 * Search another version of the graph from now on, keeping the arrays
+	 * of this engine
+	 *
+	 * @param graph a version of the graph with the same vertices
+	 */
+	void rebind(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Search for a path from start to goal
+	 *
+	 * @param start the start vertex
+	 * @param goal the goal vertex
+	 * @return the goal if it was reached, otherwise the last vertex
+	 * 			taken off the stack
+	 */
+	public int search(int start, int goal) {
+		if(++generation == 0) {
+			// the marks wrapped around, so old ones could look current
+			Arrays.fill(visited, 0);
+			generation = 1;
+		}
+		expanded = 0;
+		int top = 0, u = start, w;
+		parent[start] = -1;
+		visit(start);
+		stack[top++] = start;
+		while(top > 0) {
+			u = stack[--top];
+			if(u == goal) {
+				return u;
+			}
+			expanded++;
+			int from = graph.offsets[u], to = graph.offsets[u + 1];
+			for(int i = from; i < to; i++) {
+				if(graph.neighbors[i] == goal) {
+					parent[goal] = u;
+					return goal;
+				}
+			}
+			// rows are sorted by rank, push the last first so the first
+			// ends up on top
+			for(int i = to - 1; i >= from; i--) {
+				w = graph.neighbors[i];
+				if(!isVisited(w)) {
+					visit(w);
+					parent[w] = u;
+					stack[top++] = w;
+				}
+			}
+		}
+		return u;
+	}
+
+	/**
+	 * Get the previous vertex on the path found
+	 *
+	 * @param u a vertex on the path
+	 * @return the vertex before <I>u</I>, or -1 for the start
+	 */
+	@Override
+	public int parent(int u) {
+		return parent[u];
+	}
+
+	/**
+	 * Get the number of vertices expanded in the last search
+	 *
+	 * @return the number of expanded vertices
+	 */
+	public int expanded() {
+		return expanded;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private boolean isVisited(int u) {
+		return visited[u] == generation;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void visit(int u) {
+		visited[u] = generation;
+	}
+}
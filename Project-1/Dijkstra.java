@@ -0,0 +1,213 @@
+//******************************************************************************
+//
+// File:    Dijkstra.java
+// Package: ---
+// Unit:    Class Dijkstra
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class Dijkstra computes shortest path distances from one vertex to every
+ * other vertex of a {@link Graph}, or only until it has reached a set of
+ * targets, gone a given distance, or settled a given number of vertices.
+ * <P>
+ * A Dijkstra object keeps its arrays between runs and is not thread safe;
+ * give each thread its own. Each run stamps the vertices it reaches with
+ * a new generation, and a distance with an older stamp reads as infinite,
+ * so a run that stops early costs only what it touched rather than a
+ * pass over every vertex to clear the last run.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Dijkstra implements PathTree {
+
+	// private data members
+	private Graph graph;
+	private final IndexedHeap heap;
+	private final double[] dist;
+	private final int[] parent;
+	private final boolean[] target;
+	private final int[] seen;
+	private int generation;
+
+	/**
+	 * Construct a Dijkstra engine for a graph
+	 *
+	 * @param graph the graph to search
+	 */
+	public Dijkstra(Graph graph) {
+		this.graph = graph;
+		this.heap = new IndexedHeap(graph.v, graph.rank);
+		this.dist = new double[graph.v];
+		this.parent = new int[graph.v];
+		this.target = new boolean[graph.v];
+		this.seen = new int[graph.v];
+	}
+
+	/**
+	 * Search another version of the graph from now on, keeping the arrays
+	 * of this engine
+	 *
+	 * @param graph a version of the graph with the same vertices
+	 */
+	void rebind(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Find the shortest path from a source to every vertex
+	 *
+	 * @param source the source vertex
+	 */
+	public void run(int source) {
+		search(source, -1);
+	}
+
+	/**
+	 * Find the shortest path from a source to every target, stopping as
+	 * soon as the last target is reached. Distances to the targets are
+	 * exact afterwards; other vertices may only have an upper bound.
+	 *
+	 * @param source the source vertex
+	 * @param targets the vertices to reach, in any order
+	 */
+	public void run(int source, int[] targets) {
+		int remaining = 0;
+		for(int t : targets) {
+			if(!target[t]) {
+				target[t] = true;
+				remaining++;
+			}
+		}
+		search(source, remaining);
+		for(int t : targets) {
+			target[t] = false;
+		}
+	}
+
+	/**
+	 * Find every vertex within a distance of a source
+	 *
+	 * @param source the source vertex
+	 * @param budget the longest distance to go
+	 * @return the vertices other than the source no farther than
+	 * 			<I>budget</I>, closest first
+	 */
+	public DistanceList within(int source, double budget) {
+		return bounded(source, budget, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Find the vertices closest to a source
+	 *
+	 * @param source the source vertex
+	 * @param k how many vertices to find
+	 * @return the <I>k</I> vertices other than the source with the
+	 * 			shortest paths, or every reachable one if there are fewer,
+	 * 			closest first
+	 */
+	public DistanceList nearest(int source, int k) {
+		if(k < 0) {
+			throw new IllegalArgumentException("k must not be negative");
+		}
+		return bounded(source, Double.POSITIVE_INFINITY, k);
+	}
+
+	/*
+	 * private helper function, stop after reaching remaining targets, or
+	 * never when it is negative
+	 */
+	private void search(int source, int remaining) {
+		start(source);
+		int u;
+		while(!heap.isEmpty()) {
+			u = heap.poll();
+			if(target[u] && --remaining == 0) {
+				return;
+			}
+			expand(u);
+		}
+	}
+
+	/*
+	 * private helper function, settle vertices in order until the next is
+	 * farther than budget or k have been found
+	 */
+	private DistanceList bounded(int source, double budget, int k) {
+		DistanceList found = new DistanceList();
+		if(k == 0) {
+			return found;
+		}
+		start(source);
+		int u;
+		while(!heap.isEmpty() && heap.peekKey() <= budget) {
+			u = heap.poll();
+			if(u != source) {
+				found.add(u, dist[u]);
+				if(found.size() == k) {
+					break;
+				}
+			}
+			expand(u);
+		}
+		return found;
+	}
+
+	/*
+	 * private helper function, begin a new run from source
+	 */
+	private void start(int source) {
+		heap.clear();
+		if(++generation == 0) {
+			// the stamps wrapped around, so old ones could look current
+			Arrays.fill(seen, 0);
+			generation = 1;
+		}
+		seen[source] = generation;
+		dist[source] = 0;
+		parent[source] = -1;
+		heap.offer(source, 0);
+	}
+
+	/*
+	 * private helper function, relax every edge leaving u
+	 */
+	private void expand(int u) {
+		int w, end = graph.offsets[u + 1];
+		double nd;
+		for(int i = graph.offsets[u]; i < end; i++) {
+			w = graph.neighbors[i];
+			nd = dist[u] + graph.weights[i];
+			if(seen[w] != generation || nd < dist[w]) {
+				seen[w] = generation;
+				dist[w] = nd;
+				parent[w] = u;
+				heap.offer(w, nd);
+			}
+		}
+	}
+
+	/**
+	 * Get the distance to a vertex found in the last run
+	 *
+	 * @param u the vertex
+	 * @return the distance from the source, infinite if unreachable
+	 */
+	public double dist(int u) {
+		return seen[u] == generation ? dist[u] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Get the vertex a vertex was reached from in the last run
+	 *
+	 * @param u the vertex
+	 * @return the previous vertex on the path, or -1 for the source
+	 */
+	@Override
+	public int parent(int u) {
+		return parent[u];
+	}
+}
@@ -0,0 +1,109 @@
+//******************************************************************************
+//
+// File:    DistanceList.java
+// Package: ---
+// Unit:    Class DistanceList
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class DistanceList is a list of vertex ids, each with its distance from
+ * a source, kept in two primitive arrays so that a large answer costs no
+ * object per entry. A bounded {@link Dijkstra} search fills it in the
+ * order the vertices were settled, so distances never decrease along the
+ * list.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class DistanceList {
+
+	// private data members
+	private int[] ids;
+	private double[] distances;
+	private int size;
+
+	/**
+	 * Construct an empty list
+	 */
+	public DistanceList() {
+		this.ids = new int[16];
+		this.distances = new double[16];
+	}
+
+	/**
+	 * Get the number of entries
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get the vertex of an entry
+	 *
+	 * @param i index of the entry
+	 * @return id of the vertex
+	 */
+	public int id(int i) {
+		check(i);
+		return ids[i];
+	}
+
+	/**
+	 * Get the distance of an entry
+	 *
+	 * @param i index of the entry
+	 * @return distance of the vertex from the source
+	 */
+	public double distance(int i) {
+		check(i);
+		return distances[i];
+	}
+
+	/**
+	 * Get the vertex of every entry
+	 *
+	 * @return a new array of the ids, in list order
+	 */
+	public int[] ids() {
+		return Arrays.copyOf(ids, size);
+	}
+
+	/**
+	 * Get the distance of every entry
+	 *
+	 * @return a new array of the distances, in list order
+	 */
+	public double[] distances() {
+		return Arrays.copyOf(distances, size);
+	}
+
+	/**
+	 * Add an entry to the end of the list
+	 *
+	 * @param id the vertex
+	 * @param distance its distance from the source
+	 */
+	void add(int id, double distance) {
+		if(size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			distances = Arrays.copyOf(distances, size * 2);
+		}
+		ids[size] = id;
+		distances[size++] = distance;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void check(int i) {
+		if(i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " +
+					size);
+		}
+	}
+}
@@ -0,0 +1,264 @@
+//******************************************************************************
+//
+// File:    DistanceTable.java
+// Package: ---
+// Unit:    Class DistanceTable
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class DistanceTable is a precomputed all-pairs shortest path table kept in
+ * a memory-mapped file. For every pair of cities it stores the shortest
+ * distance and the first city to visit on the way, so a route is read by
+ * following next hops and takes time proportional to its length.
+ * <P>
+ * The table needs 12 n<SUP>2</SUP> bytes for n cities, so it is meant for
+ * graphs of up to a few thousand cities.
+ * <P>
+ * File layout, big-endian: magic, version, n (ints), one padding int, then
+ * an n&times;n row-major double distance matrix (infinite if unreachable),
+ * then an n&times;n row-major int next-hop matrix (-1 if unreachable).
+ * <P>
+ * Usage: java DistanceTable outputFile
+ * <BR>builds the table for city.dat and edge.dat.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class DistanceTable {
+
+	private static final int MAGIC = 0x4d415054; // "MAPT"
+	private static final int VERSION = 1;
+	private static final int HEADER = 16;
+
+	// private data members
+	private final Merica america;
+	private final int n;
+	private final ByteBuffer dist;
+	private final ByteBuffer hops;
+
+	/*
+	 * private constructor
+	 */
+	private DistanceTable(Merica america, ByteBuffer dist, ByteBuffer hops) {
+		this.america = america;
+		this.n = america.v;
+		this.dist = dist;
+		this.hops = hops;
+	}
+
+	/**
+	 * Build the table for a graph, one Dijkstra per source spread over all
+	 * cores, and write it to a file
+	 *
+	 * @param america the graph
+	 * @param file the file to write
+	 * @throws IOException if problem writing the file
+	 */
+	public static void build(Merica america, Path file) throws IOException {
+		final Graph graph = america.graph();
+		final int n = graph.v;
+		long cells = (long) n * n;
+		if(cells * 8 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many cities for a " +
+					"distance table: " + n);
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer header = channel.map(MapMode.READ_WRITE, 0, HEADER);
+			header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+			final MappedByteBuffer dist = channel.map(MapMode.READ_WRITE,
+					HEADER, cells * 8);
+			final MappedByteBuffer hops = channel.map(MapMode.READ_WRITE,
+					HEADER + cells * 8, cells * 4);
+			int tasks = Math.min(n,
+					ForkJoinPool.getCommonPoolParallelism() * 4);
+			ArrayList<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+			for(int t = 0; t < tasks; t++) {
+				final int from = (int) ((long) n * t / tasks);
+				final int to = (int) ((long) n * (t + 1) / tasks);
+				futures.add(ForkJoinPool.commonPool().submit(new Runnable() {
+					@Override
+					public void run() {
+						fill(graph, from, to, dist.duplicate(), hops.duplicate());
+					}
+				}));
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+			header.force();
+			dist.force();
+			hops.force();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Could not build distance table", e.getCause());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/*
+	 * private helper function, fill the rows of sources from to to-1
+	 */
+	private static void fill(Graph graph, int from, int to,
+			ByteBuffer dist, ByteBuffer hops) {
+		int n = graph.v;
+		Dijkstra dijkstra = new Dijkstra(graph);
+		int[] first = new int[n];
+		int[] stack = new int[n];
+		int top, u, p;
+		for(int s = from; s < to; s++) {
+			dijkstra.run(s);
+			Arrays.fill(first, -2);
+			first[s] = s;
+			for(int t = 0; t < n; t++) {
+				// walk up the tree to a vertex whose first hop is known
+				top = 0;
+				for(u = t; first[u] == -2; u = p) {
+					p = dijkstra.parent(u);
+					if(dijkstra.dist(u) == Double.POSITIVE_INFINITY) {
+						first[u] = -1;
+						break;
+					}
+					if(p == s) {
+						first[u] = u;
+						break;
+					}
+					stack[top++] = u;
+				}
+				while(top > 0) {
+					u = stack[--top];
+					first[u] = first[dijkstra.parent(u)];
+				}
+				dist.putDouble(((s * n) + t) * 8, dijkstra.dist(t));
+				hops.putInt(((s * n) + t) * 4, first[t]);
+			}
+		}
+	}
+
+	/**
+	 * Memory-map a table written by {@link #build(Merica, Path)}
+	 *
+	 * @param file the table file
+	 * @param america the graph the table was built from
+	 * @return the table
+	 * @throws IOException if problem reading the file, or if it does not
+	 * 			hold a table for this graph
+	 */
+	public static DistanceTable open(Path file, Merica america)
+			throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			MappedByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER);
+			if(header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Not a distance table: " + file);
+			}
+			int n = header.getInt();
+			if(n != america.v) {
+				throw new IOException("Distance table " + file + " has " + n +
+						" cities, expected " + america.v);
+			}
+			long cells = (long) n * n;
+			return new DistanceTable(america,
+					channel.map(MapMode.READ_ONLY, HEADER, cells * 8),
+					channel.map(MapMode.READ_ONLY, HEADER + cells * 8, cells * 4));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Get the shortest distance between two cities
+	 *
+	 * @param start
+	 * @param goal
+	 * @return shortest distance, infinite if unreachable
+	 */
+	public double distance(City start, City goal) {
+		return dist.getDouble((start.n * n + goal.n) * 8);
+	}
+
+	/**
+	 * Get the first city to visit on the shortest path between two cities
+	 *
+	 * @param from the vertex to leave
+	 * @param to the vertex to reach
+	 * @return the next vertex, <I>to</I> itself if <I>from</I> is
+	 * 			<I>to</I>, or -1 if unreachable
+	 */
+	public int nextHop(int from, int to) {
+		return hops.getInt((from * n + to) * 4);
+	}
+
+	/**
+	 * shortest path read from the table. A simple path visits each city
+	 * at most once, so a walk that takes more than n hops, or reaches a
+	 * hop out of range, means the table is damaged.
+	 * @param start
+	 * @param goal
+	 * @return shortest path, or a path holding only the start if the goal
+	 * 			cannot be reached
+	 * @throws IllegalStateException if the next hops do not lead to the
+	 * 			goal
+	 */
+	public SearchResult route(City start, City goal) {
+		if(nextHop(start.n, goal.n) < 0) {
+			return new SearchResult("A* Search Results: ", america.cities,
+					new int[] {start.n}, 0);
+		}
+		int length = 1;
+		for(int u = start.n; u != goal.n; u = nextHop(u, goal.n)) {
+			if(u < 0 || u >= n || length > n) {
+				throw new IllegalStateException("Damaged distance table: " +
+						"next hops from " + start.name + " do not lead to " +
+						goal.name);
+			}
+			length++;
+		}
+		int[] path = new int[length];
+		path[0] = start.n;
+		for(int i = 1; i < length; i++) {
+			path[i] = nextHop(path[i - 1], goal.n);
+		}
+		return new SearchResult("A* Search Results: ", america.cities, path,
+				distance(start, goal));
+	}
+
+	/**
+	 * main method
+	 * @param args [0] = output file
+	 * @throws IOException if problem reading the data or writing the table
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 1) {
+			System.err.println("Usage: java DistanceTable outputFile");
+			System.exit(0);
+		}
+		ArrayList<City> cities = DataParser.getCities("city.dat");
+		Merica america = new Merica(cities,
+				DataParser.getSetEdges("edge.dat", cities));
+		long begin = System.nanoTime();
+		build(america, Paths.get(args[0]));
+		System.out.printf("%d x %d table in %.3f seconds%n", america.v,
+				america.v, (System.nanoTime() - begin) / 1e9);
+	}
+}
@@ -0,0 +1,380 @@
+//******************************************************************************
+//
+// File:    Generator.java
+// Package: ---
+// Unit:    Class Generator
+//
+//******************************************************************************
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Class Generator writes synthetic road networks as city.dat and edge.dat
+ * files, for trying {@link Merica} on graphs far larger than the one that
+ * ships with the project.
+ * <P>
+ * The continental US (latitude 25 to 49, longitude 67 to 125) is cut into a
+ * grid of cells. The cities in a cell are computed from a random number
+ * generator seeded by the seed and the cell alone, so any cell can be
+ * regenerated at any time. Both files are therefore written in one pass
+ * with memory independent of the graph size.
+ * <P>
+ * Modes:
+ * <UL>
+ * <LI><TT>geometric</TT>: random geometric graph, cities closer than a
+ * radius picked for the requested average degree are joined
+ * <LI><TT>mesh</TT>: one city per cell, joined to its right and lower
+ * neighbors and across the shorter diagonal of each cell, a planar
+ * triangulation much like a Delaunay one
+ * <LI><TT>highways</TT>: one city per cell joined to its right and lower
+ * neighbors, plus long edges along every <I>spacing</I>th row and column
+ * </UL>
+ * Clustering from 0 to 1 moves cities from sparse regions into dense ones
+ * while keeping their average number the same.
+ * <P>
+ * Usage: java Generator [-mode m] [-cities n] [-degree d] [-cluster c]
+ * [-spacing s] [-seed x] cityFile edgeFile
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Generator {
+
+	private static final double MIN_LAT = 25, MAX_LAT = 49;
+	private static final double MIN_LON = 67, MAX_LON = 125;
+	// cells per side of the regions that share a density when clustering
+	private static final int REGION = 8;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String STATE = "XX";
+
+	/**
+	 * the kinds of graph that can be generated
+	 */
+	public enum Mode { GEOMETRIC, MESH, HIGHWAYS }
+
+	// private data members
+	private final Mode mode;
+	private final long seed;
+	private final double perCell;
+	private final double cluster;
+	private final int spacing;
+	private final double radius;
+	private final int rows, cols;
+	private final double cellLat, cellLon;
+	private final Random random = new Random();
+	private long cityCount, edgeCount;
+
+	/**
+	 * Construct a generator
+	 *
+	 * @param mode the kind of graph
+	 * @param cities about how many cities to generate
+	 * @param degree average degree wanted, for geometric graphs
+	 * @param cluster clustering, from 0 for even spread to 1
+	 * @param spacing cells between highways, for highway graphs
+	 * @param seed the random seed
+	 */
+	public Generator(Mode mode, long cities, double degree, double cluster,
+			int spacing, long seed) {
+		if(cities < 1 || degree <= 0 || cluster < 0 || cluster > 1 ||
+				spacing < 2) {
+			throw new IllegalArgumentException("Bad generator parameters");
+		}
+		this.mode = mode;
+		this.seed = seed;
+		this.cluster = cluster;
+		this.spacing = spacing;
+		// a few cities per cell for geometric graphs keeps the radius well
+		// inside one cell, so only neighboring cells need to be checked
+		this.perCell = mode == Mode.GEOMETRIC ? Math.max(4, degree) : 1;
+		this.radius = Math.sqrt(degree / (Math.PI * perCell));
+		double cells = Math.ceil(cities / perCell);
+		this.rows = (int) Math.max(1, Math.round(Math.sqrt(cells *
+				(MAX_LAT - MIN_LAT) / (MAX_LON - MIN_LON))));
+		this.cols = (int) Math.ceil(cells / rows);
+		this.cellLat = (MAX_LAT - MIN_LAT) / rows;
+		this.cellLon = (MAX_LON - MIN_LON) / cols;
+	}
+
+	/**
+	 * Write the city and edge files
+	 *
+	 * @param cityOut receives the cities
+	 * @param edgeOut receives the edges
+	 * @throws IOException if problem writing either file
+	 */
+	public void write(Writer cityOut, Writer edgeOut) throws IOException {
+		int max = maxPerCell();
+		double[] x = new double[max], y = new double[max];
+		double[] nx = new double[max], ny = new double[max];
+		StringBuilder line = new StringBuilder();
+		cityCount = edgeCount = 0;
+		for(int row = 0; row < rows; row++) {
+			for(int col = 0; col < cols; col++) {
+				int count = cell(row, col, x, y);
+				for(int k = 0; k < count; k++) {
+					line.setLength(0);
+					name(line, row, col, k).append('\t').append(STATE)
+						.append('\t');
+					fixed(line, MIN_LAT + y[k] * cellLat).append('\t');
+					fixed(line, MIN_LON + x[k] * cellLon).append('\n');
+					cityOut.append(line);
+					cityCount++;
+				}
+				switch(mode) {
+				case GEOMETRIC:
+					geometric(edgeOut, line, row, col, count, x, y, nx, ny);
+					break;
+				case MESH:
+					if(count > 0) mesh(edgeOut, line, row, col, x, y, nx, ny);
+					break;
+				case HIGHWAYS:
+					if(count > 0) highways(edgeOut, line, row, col);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of cities written by the last call to write
+	 *
+	 * @return the number of cities
+	 */
+	public long cities() {
+		return cityCount;
+	}
+
+	/**
+	 * Get the number of edges written by the last call to write
+	 *
+	 * @return the number of edges
+	 */
+	public long edges() {
+		return edgeCount;
+	}
+
+	/*
+	 * private helper function, join each city to every city within the
+	 * radius in this cell or a later neighboring cell
+	 */
+	private void geometric(Writer out, StringBuilder line, int row, int col,
+			int count, double[] x, double[] y, double[] nx, double[] ny)
+			throws IOException {
+		double r2 = radius * radius, dx, dy;
+		for(int k = 0; k < count; k++) {
+			for(int j = k + 1; j < count; j++) {
+				dx = x[k] - x[j];
+				dy = y[k] - y[j];
+				if(dx * dx + dy * dy < r2) {
+					edge(out, line, row, col, k, row, col, j);
+				}
+			}
+		}
+		// right, and the three cells of the next row
+		int[][] later = {{0, 1}, {1, -1}, {1, 0}, {1, 1}};
+		for(int[] d : later) {
+			int r = row + d[0], c = col + d[1];
+			if(r >= rows || c < 0 || c >= cols) continue;
+			int others = cell(r, c, nx, ny);
+			for(int k = 0; k < count; k++) {
+				for(int j = 0; j < others; j++) {
+					dx = x[k] - nx[j];
+					dy = y[k] - ny[j];
+					if(dx * dx + dy * dy < r2) {
+						edge(out, line, row, col, k, r, c, j);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * private helper function, join to the right and lower cities and
+	 * across the shorter diagonal of the cell below and to the right
+	 */
+	private void mesh(Writer out, StringBuilder line, int row, int col,
+			double[] x, double[] y, double[] nx, double[] ny) throws IOException {
+		if(col + 1 < cols) edge(out, line, row, col, 0, row, col + 1, 0);
+		if(row + 1 < rows) edge(out, line, row, col, 0, row + 1, col, 0);
+		if(row + 1 >= rows || col + 1 >= cols) return;
+		cell(row + 1, col + 1, nx, ny);
+		double main = squared(x[0] - nx[0], y[0] - ny[0]);
+		cell(row, col + 1, x, y);
+		cell(row + 1, col, nx, ny);
+		double anti = squared(x[0] - nx[0], y[0] - ny[0]);
+		if(main <= anti) {
+			edge(out, line, row, col, 0, row + 1, col + 1, 0);
+		} else {
+			edge(out, line, row, col + 1, 0, row + 1, col, 0);
+		}
+	}
+
+	/*
+	 * private helper function, a grid with express edges along every
+	 * spacing-th row and column
+	 */
+	private void highways(Writer out, StringBuilder line, int row, int col)
+			throws IOException {
+		if(col + 1 < cols) edge(out, line, row, col, 0, row, col + 1, 0);
+		if(row + 1 < rows) edge(out, line, row, col, 0, row + 1, col, 0);
+		if(row % spacing == 0 && col % spacing == 0 && col + spacing < cols) {
+			edge(out, line, row, col, 0, row, col + spacing, 0);
+		}
+		if(col % spacing == 0 && row % spacing == 0 && row + spacing < rows) {
+			edge(out, line, row, col, 0, row + spacing, col, 0);
+		}
+	}
+
+	/*
+	 * private helper function, the cities of one cell in cell units, where
+	 * the cell covers [col, col + 1) by [row, row + 1)
+	 */
+	private int cell(int row, int col, double[] x, double[] y) {
+		int count = 1;
+		if(mode == Mode.GEOMETRIC) {
+			random.setSeed(hash(seed, row / REGION, col / REGION, 1));
+			double density = random.nextDouble();
+			// 3 u^2 averages 1 over the regions
+			double factor = 1 - cluster + cluster * 3 * density * density;
+			random.setSeed(hash(seed, row, col, 0));
+			count = (int) (perCell * factor + random.nextDouble());
+		} else {
+			random.setSeed(hash(seed, row, col, 0));
+		}
+		for(int k = 0; k < count; k++) {
+			x[k] = col + random.nextDouble();
+			y[k] = row + random.nextDouble();
+		}
+		return count;
+	}
+
+	/*
+	 * private helper function, the most cities any cell can hold
+	 */
+	private int maxPerCell() {
+		return (int) (perCell * (1 + 2 * cluster)) + 1;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void edge(Writer out, StringBuilder line, int row1, int col1,
+			int k1, int row2, int col2, int k2) throws IOException {
+		line.setLength(0);
+		name(line, row1, col1, k1).append('\t');
+		name(line, row2, col2, k2).append('\n');
+		out.append(line);
+		edgeCount++;
+	}
+
+	/*
+	 * private helper function, every city's name is unique to its cell
+	 */
+	private static StringBuilder name(StringBuilder line, int row, int col,
+			int k) {
+		return line.append('C').append(row).append('_').append(col)
+			.append('_').append(k);
+	}
+
+	/*
+	 * private helper function, four decimal places without String.format
+	 */
+	private static StringBuilder fixed(StringBuilder line, double value) {
+		long scaled = Math.round(value * 10000);
+		line.append(scaled / 10000).append('.');
+		long fraction = scaled % 10000;
+		for(long digit = 1000; digit > 0; digit /= 10) {
+			line.append((char) ('0' + fraction / digit % 10));
+		}
+		return line;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static double squared(double dx, double dy) {
+		return dx * dx + dy * dy;
+	}
+
+	/*
+	 * private helper function, mix a cell's coordinates into a seed
+	 */
+	private static long hash(long seed, int row, int col, int salt) {
+		long h = seed + 0x9e3779b97f4a7c15L * (((long) row << 32 | col &
+				0xffffffffL) + salt * 0x632be59bd9b4e019L);
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		return h ^ (h >>> 31);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void usage() {
+		System.err.println("Usage: java Generator [-mode geometric|mesh|" +
+				"highways] [-cities n] [-degree d] [-cluster c] " +
+				"[-spacing s] [-seed x] cityFile edgeFile");
+		System.exit(1);
+	}
+
+	/**
+	 * main method
+	 * @param args options, then [0] = city file, [1] = edge file
+	 * @throws IOException if problem writing either file
+	 */
+	public static void main(String[] args) throws IOException {
+		Mode mode = Mode.GEOMETRIC;
+		long cities = 1000, seed = 1;
+		double degree = 6, cluster = 0.5;
+		int spacing = 16, i = 0;
+		try {
+			for(; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+				String value = args[i + 1];
+				switch(args[i]) {
+				case "-mode": mode = Mode.valueOf(value.toUpperCase()); break;
+				case "-cities": cities = Long.parseLong(value); break;
+				case "-degree": degree = Double.parseDouble(value); break;
+				case "-cluster": cluster = Double.parseDouble(value); break;
+				case "-spacing": spacing = Integer.parseInt(value); break;
+				case "-seed": seed = Long.parseLong(value); break;
+				default: usage();
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			usage();
+		}
+		if(args.length - i != 2) {
+			usage();
+		}
+		Generator generator = null;
+		try {
+			generator = new Generator(mode, cities, degree, cluster, spacing,
+					seed);
+		} catch (IllegalArgumentException e) {
+			usage();
+		}
+		Charset charset = Charset.forName("US-ASCII");
+		Writer cityOut = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(args[i]), charset), BUFFER_SIZE);
+		try {
+			Writer edgeOut = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(args[i + 1]), charset), BUFFER_SIZE);
+			try {
+				generator.write(cityOut, edgeOut);
+			} finally {
+				edgeOut.close();
+			}
+		} finally {
+			cityOut.close();
+		}
+		System.err.println(generator.cities() + " cities, " +
+				generator.edges() + " edges");
+	}
+}
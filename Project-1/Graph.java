@@ -0,0 +1,478 @@
+//******************************************************************************
+//
+// File:    Graph.java
+// Package: ---
+// Unit:    Class Graph
+//
+//******************************************************************************
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Class Graph is an immutable, primitive view of an undirected graph stored
+ * in compressed-sparse-row (CSR) form. The neighbors of vertex <I>u</I> are
+ * <TT>neighbors[offsets[u]]</TT> through
+ * <TT>neighbors[offsets[u+1]-1]</TT>, and the weight of the edge leading to
+ * each neighbor sits at the same index in <TT>weights</TT>.
+ * <P>
+ * Every undirected edge appears twice, once in each endpoint's row. Each
+ * row is sorted by the alphabetical rank of the neighbors' names, then by
+ * edge id, which is the order breadth first and depth first search visit
+ * them in, so no search has to sort a row again.
+ * <P>
+ * A graph is never changed once built. Adding, removing or reweighting an
+ * edge makes a new version that shares every array the change does not
+ * touch, so a search that started on the old version finishes on it.
+ * <P>
+ * Distances follow the graph's {@link Metric}. For great-circle distances
+ * every vertex's position is also kept as a unit vector in three arrays, so
+ * that the a* heuristic needs no trigonometry: the straight line through
+ * the earth between two cities, the chord, is never longer than the arc
+ * between them.
+ * <P>
+ * As a {@link Heuristic}, a Graph estimates the straight line distance.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Graph implements Heuristic {
+
+	/**
+	 * number of vertices
+	 */
+	public final int v;
+
+	/**
+	 * row offsets, length <I>v</I> + 1
+	 */
+	public final int[] offsets;
+
+	/**
+	 * neighbor vertex ids, length 2 * number of edges
+	 */
+	public final int[] neighbors;
+
+	/**
+	 * weight of the edge leading to each neighbor
+	 */
+	public final double[] weights;
+
+	/**
+	 * id of the {@link UndirectedEdge} leading to each neighbor
+	 */
+	public final int[] edgeIds;
+
+	/**
+	 * latitude and longitude of every vertex
+	 */
+	public final double[] lat, lon;
+
+	/**
+	 * position of every vertex when the city names are sorted
+	 * alphabetically, used to break ties without comparing strings
+	 */
+	public final int[] rank;
+
+	/**
+	 * how distances are measured
+	 */
+	public final Metric metric;
+
+	/**
+	 * unit vector of every vertex's position, null for the planar metric
+	 */
+	public final double[] x, y, z;
+
+	/**
+	 * radius of the earth in miles
+	 */
+	public static final double EARTH_RADIUS = 3958.8;
+
+	/**
+	 * Construct the CSR view of a graph
+	 *
+	 * @param cities the vertices, where <TT>cities.get(i).n == i</TT>
+	 * @param edges the edges connecting the vertices
+	 */
+	public Graph(ArrayList<City> cities, ArrayList<UndirectedEdge> edges) {
+		this.v = cities.size();
+		this.offsets = new int[v + 1];
+		for(int i = 0; i < v; i++) {
+			offsets[i + 1] = offsets[i] + cities.get(i).edgeCount();
+		}
+		int m = offsets[v];
+		this.neighbors = new int[m];
+		this.weights = new double[m];
+		this.edgeIds = new int[m];
+		this.rank = ranks(cities);
+		UndirectedEdge[] row;
+		int k;
+		for(int i = 0; i < v; i++) {
+			final City city = cities.get(i);
+			row = city.getEdges().toArray(new UndirectedEdge[0]);
+			Arrays.sort(row, new Comparator<UndirectedEdge>() {
+				@Override
+				public int compare(UndirectedEdge o1, UndirectedEdge o2) {
+					int c = rank[o1.other(city).n] - rank[o2.other(city).n];
+					return c != 0 ? c : Integer.compare(o1.id, o2.id);
+				}
+			});
+			k = offsets[i];
+			for(UndirectedEdge edge : row) {
+				neighbors[k] = edge.other(city).n;
+				weights[k] = edge.weight;
+				edgeIds[k] = edge.id;
+				k++;
+			}
+		}
+		this.lat = new double[v];
+		this.lon = new double[v];
+		for(int i = 0; i < v; i++) {
+			lat[i] = cities.get(i).lat;
+			lon[i] = cities.get(i).lon;
+		}
+		this.metric = Metric.PLANAR;
+		this.x = this.y = this.z = null;
+	}
+
+	/**
+	 * Construct a graph from arrays that are already in CSR form. The
+	 * arrays are used as they are, not copied.
+	 *
+	 * @param offsets row offsets, length <I>v</I> + 1
+	 * @param neighbors neighbor vertex ids
+	 * @param weights weight of the edge leading to each neighbor
+	 * @param edgeIds id of the edge leading to each neighbor
+	 * @param lat latitude of every vertex
+	 * @param lon longitude of every vertex
+	 * @param rank alphabetical rank of every vertex's name
+	 */
+	public Graph(int[] offsets, int[] neighbors, double[] weights,
+			int[] edgeIds, double[] lat, double[] lon, int[] rank) {
+		this(Metric.PLANAR, offsets, neighbors, weights, edgeIds, lat, lon,
+				rank);
+	}
+
+	/**
+	 * Construct a graph from arrays that are already in CSR form, measuring
+	 * distances with a given metric. The arrays are used as they are, not
+	 * copied.
+	 *
+	 * @param metric how distances are measured
+	 * @param offsets row offsets, length <I>v</I> + 1
+	 * @param neighbors neighbor vertex ids
+	 * @param weights weight of the edge leading to each neighbor
+	 * @param edgeIds id of the edge leading to each neighbor
+	 * @param lat latitude of every vertex
+	 * @param lon longitude of every vertex
+	 * @param rank alphabetical rank of every vertex's name
+	 */
+	public Graph(Metric metric, int[] offsets, int[] neighbors,
+			double[] weights, int[] edgeIds, double[] lat, double[] lon,
+			int[] rank) {
+		this.v = offsets.length - 1;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		this.edgeIds = edgeIds;
+		this.lat = lat;
+		this.lon = lon;
+		this.rank = rank;
+		this.metric = metric;
+		if(metric == Metric.GREAT_CIRCLE) {
+			this.x = new double[v];
+			this.y = new double[v];
+			this.z = new double[v];
+			double phi, lambda;
+			for(int i = 0; i < v; i++) {
+				phi = Math.toRadians(lat[i]);
+				lambda = Math.toRadians(lon[i]);
+				x[i] = Math.cos(phi) * Math.cos(lambda);
+				y[i] = Math.cos(phi) * Math.sin(lambda);
+				z[i] = Math.sin(phi);
+			}
+		} else {
+			this.x = this.y = this.z = null;
+		}
+	}
+
+	/*
+	 * private constructor, a new version of a graph sharing everything but
+	 * its edges
+	 */
+	private Graph(Graph graph, int[] offsets, int[] neighbors,
+			double[] weights, int[] edgeIds) {
+		this.v = graph.v;
+		this.offsets = offsets;
+		this.neighbors = neighbors;
+		this.weights = weights;
+		this.edgeIds = edgeIds;
+		this.lat = graph.lat;
+		this.lon = graph.lon;
+		this.rank = graph.rank;
+		this.metric = graph.metric;
+		this.x = graph.x;
+		this.y = graph.y;
+		this.z = graph.z;
+	}
+
+	/**
+	 * Get a copy of this graph with one more edge, placed in both rows
+	 * where sorting would put it. This graph is not changed.
+	 *
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param id id of the edge, greater than every id already in the graph
+	 * @param weight weight of the edge
+	 * @return the new graph
+	 */
+	public Graph withEdge(int a, int b, int id, double weight) {
+		if(a == b) {
+			throw new IllegalArgumentException("Cannot have self loop");
+		}
+		if(a > b) {
+			int t = a;
+			a = b;
+			b = t;
+		}
+		int m = neighbors.length;
+		int pa = insertionPoint(a, b, id), pb = insertionPoint(b, a, id);
+		int[] newOffsets = new int[v + 1];
+		for(int u = 0; u <= v; u++) {
+			newOffsets[u] = offsets[u] + (u > b ? 2 : u > a ? 1 : 0);
+		}
+		int[] newNeighbors = new int[m + 2];
+		double[] newWeights = new double[m + 2];
+		int[] newEdgeIds = new int[m + 2];
+		copy(0, 0, pa, newNeighbors, newWeights, newEdgeIds);
+		newNeighbors[pa] = b;
+		newWeights[pa] = weight;
+		newEdgeIds[pa] = id;
+		copy(pa, pa + 1, pb - pa, newNeighbors, newWeights, newEdgeIds);
+		newNeighbors[pb + 1] = a;
+		newWeights[pb + 1] = weight;
+		newEdgeIds[pb + 1] = id;
+		copy(pb, pb + 2, m - pb, newNeighbors, newWeights, newEdgeIds);
+		return new Graph(this, newOffsets, newNeighbors, newWeights,
+				newEdgeIds);
+	}
+
+	/**
+	 * Get a copy of this graph without an edge. This graph is not changed.
+	 *
+	 * @param id id of the edge to leave out
+	 * @return the new graph
+	 */
+	public Graph withoutEdge(int id) {
+		int m = neighbors.length;
+		int p = find(id, 0), q = find(id, p + 1);
+		// the first entry is in the row of the smaller end point
+		int a = neighbors[q], b = neighbors[p];
+		int[] newOffsets = new int[v + 1];
+		for(int u = 0; u <= v; u++) {
+			newOffsets[u] = offsets[u] - (u > b ? 2 : u > a ? 1 : 0);
+		}
+		int[] newNeighbors = new int[m - 2];
+		double[] newWeights = new double[m - 2];
+		int[] newEdgeIds = new int[m - 2];
+		copy(0, 0, p, newNeighbors, newWeights, newEdgeIds);
+		copy(p + 1, p, q - p - 1, newNeighbors, newWeights, newEdgeIds);
+		copy(q + 1, q - 1, m - q - 1, newNeighbors, newWeights, newEdgeIds);
+		return new Graph(this, newOffsets, newNeighbors, newWeights,
+				newEdgeIds);
+	}
+
+	/**
+	 * Get a copy of this graph with a different weight on one edge. Only
+	 * the weights are copied; this graph is not changed.
+	 *
+	 * @param id id of the edge
+	 * @param weight new weight of the edge
+	 * @return the new graph
+	 */
+	public Graph withWeight(int id, double weight) {
+		int p = find(id, 0), q = find(id, p + 1);
+		double[] newWeights = weights.clone();
+		newWeights[p] = newWeights[q] = weight;
+		return new Graph(this, offsets, neighbors, newWeights, edgeIds);
+	}
+
+	/**
+	 * Get the weight of the lightest edge between two vertices
+	 *
+	 * @param a one vertex
+	 * @param b another vertex
+	 * @return the weight, or infinity when they are not neighbors
+	 */
+	public double weight(int a, int b) {
+		double weight = Double.POSITIVE_INFINITY;
+		for(int i = offsets[a]; i < offsets[a + 1]; i++) {
+			if(neighbors[i] == b && weights[i] < weight) {
+				weight = weights[i];
+			}
+		}
+		return weight;
+	}
+
+	/*
+	 * private helper function, where in the row of u an edge to w with
+	 * the given id belongs
+	 */
+	private int insertionPoint(int u, int w, int id) {
+		int i = offsets[u], end = offsets[u + 1];
+		while(i < end && (rank[neighbors[i]] < rank[w] ||
+				rank[neighbors[i]] == rank[w] && edgeIds[i] < id)) {
+			i++;
+		}
+		return i;
+	}
+
+	/*
+	 * private helper function, index of an edge's entry at or after from
+	 */
+	private int find(int id, int from) {
+		for(int i = from; i < edgeIds.length; i++) {
+			if(edgeIds[i] == id) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("No such edge: " + id);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void copy(int from, int to, int length, int[] newNeighbors,
+			double[] newWeights, int[] newEdgeIds) {
+		System.arraycopy(neighbors, from, newNeighbors, to, length);
+		System.arraycopy(weights, from, newWeights, to, length);
+		System.arraycopy(edgeIds, from, newEdgeIds, to, length);
+	}
+
+	/**
+	 * Get the number of neighbors of a vertex
+	 *
+	 * @param u the vertex
+	 * @return the number of neighbors of <I>u</I>
+	 */
+	public int degree(int u) {
+		return offsets[u + 1] - offsets[u];
+	}
+
+	/**
+	 * Calculate the distance between two vertices. For the planar metric
+	 * this is the straight line distance, exactly as
+	 * {@link City#distanceTo(City)} calculates it; for the great-circle
+	 * metric it is the length of the arc between them.
+	 *
+	 * @param a one vertex
+	 * @param b another vertex
+	 * @return distance between <I>a</I> and <I>b</I>
+	 */
+	public double distance(int a, int b) {
+		if(metric == Metric.GREAT_CIRCLE) {
+			return 2 * EARTH_RADIUS * Math.asin(Math.min(1, chord(a, b) / 2));
+		}
+		double dlat = lat[a] - lat[b], dlon = lon[a] - lon[b];
+		return Math.sqrt(dlat*dlat + dlon*dlon)*100;
+	}
+
+	/**
+	 * Estimate the remaining distance as the straight line distance, for
+	 * the great-circle metric the chord between the two vertices
+	 *
+	 * @param u the vertex being reached
+	 * @param goal the goal vertex
+	 * @return straight line distance
+	 */
+	@Override
+	public double estimate(int u, int goal) {
+		if(metric == Metric.GREAT_CIRCLE) {
+			return EARTH_RADIUS * chord(u, goal);
+		}
+		return distance(u, goal);
+	}
+
+	/*
+	 * private helper function, distance between two unit vectors
+	 */
+	private double chord(int a, int b) {
+		double dx = x[a] - x[b], dy = y[a] - y[b], dz = z[a] - z[b];
+		return Math.sqrt(dx*dx + dy*dy + dz*dz);
+	}
+
+	/**
+	 * Sort rows into the order every Graph keeps them in: by the rank of
+	 * the neighbor, then by edge id. Weights are not moved, so fill them in
+	 * after sorting.
+	 *
+	 * @param offsets row offsets
+	 * @param neighbors neighbor vertex ids
+	 * @param edgeIds id of the edge leading to each neighbor
+	 * @param rank alphabetical rank of every vertex's name
+	 * @param byRank the vertex with each rank, the inverse of <I>rank</I>
+	 * @param from the first vertex whose row is sorted
+	 * @param to one past the last vertex whose row is sorted
+	 */
+	public static void sortRows(int[] offsets, int[] neighbors, int[] edgeIds,
+			int[] rank, int[] byRank, int from, int to) {
+		long[] keys = new long[16];
+		int start, length;
+		for(int u = from; u < to; u++) {
+			start = offsets[u];
+			length = offsets[u + 1] - start;
+			if(length > keys.length) {
+				keys = new long[Integer.highestOneBit(length) << 1];
+			}
+			for(int k = 0; k < length; k++) {
+				keys[k] = (long) rank[neighbors[start + k]] << 32 |
+						edgeIds[start + k];
+			}
+			Arrays.sort(keys, 0, length);
+			for(int k = 0; k < length; k++) {
+				neighbors[start + k] = byRank[(int) (keys[k] >>> 32)];
+				edgeIds[start + k] = (int) keys[k];
+			}
+		}
+	}
+
+	/**
+	 * Invert a ranking
+	 *
+	 * @param rank position of every vertex, a permutation
+	 * @return the vertex at every position
+	 */
+	public static int[] byRank(int[] rank) {
+		int[] result = new int[rank.length];
+		for(int u = 0; u < rank.length; u++) {
+			result[rank[u]] = u;
+		}
+		return result;
+	}
+
+	/**
+	 * Rank the cities by name
+	 *
+	 * @param cities the cities, where <TT>cities.get(i).n == i</TT>
+	 * @return the position of every city when sorted by name
+	 */
+	public static int[] ranks(final ArrayList<City> cities) {
+		Integer[] order = new Integer[cities.size()];
+		for(int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return cities.get(o1).name.compareTo(cities.get(o2).name);
+			}
+		});
+		int[] rank = new int[order.length];
+		for(int i = 0; i < order.length; i++) {
+			rank[order[i]] = i;
+		}
+		return rank;
+	}
+}
@@ -0,0 +1,135 @@
+//******************************************************************************
+//
+// File:    GraphBuilder.java
+// Package: ---
+// Unit:    Class GraphBuilder
+//
+//******************************************************************************
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Class GraphBuilder collects cities and edges as they are parsed and turns
+ * them into a {@link Merica} in one step. Edges are kept as pairs of city
+ * ids in primitive arrays until the CSR graph is built, instead of as
+ * {@link UndirectedEdge} objects.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class GraphBuilder {
+
+	// private data members
+	private final Metric metric;
+	private final ArrayList<City> cities = new ArrayList<City>();
+	private int[] a = new int[16];
+	private int[] b = new int[16];
+	private int edges;
+
+	/**
+	 * Construct a builder for a graph with planar distances
+	 */
+	public GraphBuilder() {
+		this(Metric.PLANAR);
+	}
+
+	/**
+	 * Construct a builder
+	 *
+	 * @param metric how the graph measures distances
+	 */
+	public GraphBuilder(Metric metric) {
+		this.metric = metric;
+	}
+
+	/**
+	 * Add a city
+	 *
+	 * @param name name of city
+	 * @param state state contained in
+	 * @param lat latitude
+	 * @param lon longitude
+	 * @return the city's id
+	 */
+	public int addCity(String name, String state, double lat, double lon) {
+		City city = new City(cities.size(), name, state, lat, lon);
+		cities.add(city);
+		return city.n;
+	}
+
+	/**
+	 * Add an edge between two cities added earlier
+	 *
+	 * @param x one city's id
+	 * @param y another city's id, not equal to <I>x</I>
+	 */
+	public void addEdge(int x, int y) {
+		if(x == y) {
+			throw new IllegalArgumentException("Cannot have self loop");
+		}
+		if(edges == a.length) {
+			a = Arrays.copyOf(a, edges * 2);
+			b = Arrays.copyOf(b, edges * 2);
+		}
+		a[edges] = x;
+		b[edges] = y;
+		edges++;
+	}
+
+	/**
+	 * Get the cities added so far
+	 *
+	 * @return the cities, in id order
+	 */
+	public ArrayList<City> cities() {
+		return cities;
+	}
+
+	/**
+	 * Build the graph. Every city's row is sorted as {@link Graph} describes,
+	 * the same graph as if each edge had been an {@link UndirectedEdge}.
+	 *
+	 * @return the graph
+	 */
+	public Merica build() {
+		int v = cities.size();
+		int[] offsets = new int[v + 1];
+		for(int e = 0; e < edges; e++) {
+			offsets[a[e] + 1]++;
+			offsets[b[e] + 1]++;
+		}
+		for(int u = 0; u < v; u++) {
+			offsets[u + 1] += offsets[u];
+		}
+		int[] next = Arrays.copyOf(offsets, v);
+		int[] neighbors = new int[2 * edges];
+		double[] weights = new double[2 * edges];
+		int[] edgeIds = new int[2 * edges];
+		double[] lat = new double[v], lon = new double[v];
+		for(int u = 0; u < v; u++) {
+			lat[u] = cities.get(u).lat;
+			lon[u] = cities.get(u).lon;
+		}
+		int[] rank = Graph.ranks(cities);
+		Graph graph = new Graph(metric, offsets, neighbors, weights, edgeIds,
+				lat, lon, rank);
+		int k;
+		for(int e = 0; e < edges; e++) {
+			k = next[a[e]]++;
+			neighbors[k] = b[e];
+			edgeIds[k] = e;
+			k = next[b[e]]++;
+			neighbors[k] = a[e];
+			edgeIds[k] = e;
+		}
+		Graph.sortRows(offsets, neighbors, edgeIds, rank, Graph.byRank(rank),
+				0, v);
+		for(int u = 0; u < v; u++) {
+			for(k = offsets[u]; k < offsets[u + 1]; k++) {
+				weights[k] = graph.distance(u, neighbors[k]);
+			}
+		}
+		return new Merica(cities, graph);
+	}
+}
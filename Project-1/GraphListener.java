@@ -0,0 +1,36 @@
+//******************************************************************************
+//
+// File:    GraphListener.java
+// Package: ---
+// Unit:    Interface GraphListener
+//
+//******************************************************************************
+
+/**
+ * Interface GraphListener is told about every edge added to, removed from
+ * or reweighted in a {@link Merica}, so that anything remembered about
+ * earlier versions of the graph can be repaired.
+ * <P>
+ * A removed edge is reported as its weight growing to infinity and an added
+ * edge as its weight falling from infinity. Paths can only get longer when
+ * a weight grows and only shorter when it falls, which is usually all a
+ * listener needs to know.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public interface GraphListener {
+
+	/**
+	 * Called after an edge has changed, once the new version of the graph
+	 * is the one new searches use
+	 *
+	 * @param graph the new version of the graph
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param before weight of the edge before, infinity if it was added
+	 * @param after weight of the edge now, infinity if it was removed
+	 */
+	public void edgeChanged(Graph graph, int a, int b, double before,
+			double after);
+}
@@ -0,0 +1,27 @@
+//******************************************************************************
+//
+// File:    Heuristic.java
+// Package: ---
+// Unit:    Interface Heuristic
+//
+//******************************************************************************
+
+/**
+ * Interface Heuristic estimates the remaining distance A* has to travel.
+ * An estimate must never be more than the true shortest path distance, or
+ * A* may return a path that is not the shortest.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public interface Heuristic {
+
+	/**
+	 * Estimate the shortest path distance between two vertices
+	 *
+	 * @param u the vertex being reached
+	 * @param goal the goal vertex
+	 * @return a lower bound on the distance from <I>u</I> to <I>goal</I>
+	 */
+	public double estimate(int u, int goal);
+}
@@ -0,0 +1,179 @@
+//******************************************************************************
+//
+// File:    IndexedHeap.java
+// Package: ---
+// Unit:    Class IndexedHeap
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class IndexedHeap is a d-ary min-heap of vertex ids keyed by a
+ * <TT>double</TT> priority. Because the heap knows where every vertex sits,
+ * it supports decrease-key in O(log n) instead of the O(n)
+ * <TT>contains</TT>/<TT>remove</TT> scans a {@link java.util.PriorityQueue}
+ * needs.
+ * <P>
+ * Equal priorities are broken by a per-vertex tie rank, smallest first.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class IndexedHeap {
+
+	private static final int D = 4;
+
+	// private data members
+	private final int[] heap;
+	private final int[] pos;
+	private final double[] keys;
+	private final int[] ties;
+	private int size;
+
+	/**
+	 * Construct an empty heap
+	 *
+	 * @param capacity the number of vertices, ids are 0 to capacity - 1
+	 * @param ties tie rank of every vertex
+	 */
+	public IndexedHeap(int capacity, int[] ties) {
+		this.heap = new int[capacity];
+		this.pos = new int[capacity];
+		this.keys = new double[capacity];
+		this.ties = ties;
+		Arrays.fill(pos, -1);
+	}
+
+	/**
+	 * Is the heap empty?
+	 *
+	 * @return true if there are no vertices in the heap
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Get the number of vertices in the heap
+	 *
+	 * @return the number of vertices in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Is a vertex in the heap?
+	 *
+	 * @param id the vertex
+	 * @return true if the vertex is in the heap
+	 */
+	public boolean contains(int id) {
+		return pos[id] >= 0;
+	}
+
+	/**
+	 * Get the priority of the vertex on top of the heap
+	 *
+	 * @return the smallest priority in the heap
+	 */
+	public double peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Insert a vertex, or lower its priority if it is already in the heap
+	 * with a larger one
+	 *
+	 * @param id the vertex
+	 * @param key the priority
+	 * @return true if the heap changed
+	 */
+	public boolean offer(int id, double key) {
+		int i = pos[id];
+		if(i < 0) {
+			i = size++;
+			heap[i] = id;
+			pos[id] = i;
+		} else if(key >= keys[id]) {
+			return false;
+		}
+		keys[id] = key;
+		up(i);
+		return true;
+	}
+
+	/**
+	 * Remove the vertex with the smallest priority
+	 *
+	 * @return the removed vertex
+	 */
+	public int poll() {
+		int top = heap[0];
+		pos[top] = -1;
+		size--;
+		if(size > 0) {
+			heap[0] = heap[size];
+			pos[heap[0]] = 0;
+			down(0);
+		}
+		return top;
+	}
+
+	/**
+	 * Remove every vertex from the heap. Only the vertices still in the
+	 * heap are touched, so this costs O(size) rather than O(capacity).
+	 */
+	public void clear() {
+		for(int i = 0; i < size; i++) {
+			pos[heap[i]] = -1;
+		}
+		size = 0;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private boolean less(int a, int b) {
+		return keys[a] < keys[b] || (keys[a] == keys[b] && ties[a] < ties[b]);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void up(int i) {
+		int id = heap[i], p;
+		while(i > 0) {
+			p = (i - 1) / D;
+			if(!less(id, heap[p])) break;
+			heap[i] = heap[p];
+			pos[heap[i]] = i;
+			i = p;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void down(int i) {
+		int id = heap[i], c, best, end;
+		while(true) {
+			c = i * D + 1;
+			if(c >= size) break;
+			best = c;
+			end = Math.min(c + D, size);
+			for(c++; c < end; c++) {
+				if(less(heap[c], heap[best])) best = c;
+			}
+			if(!less(heap[best], id)) break;
+			heap[i] = heap[best];
+			pos[heap[i]] = i;
+			i = best;
+		}
+		heap[i] = id;
+		pos[id] = i;
+	}
+}
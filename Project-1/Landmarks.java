@@ -0,0 +1,189 @@
+//******************************************************************************
+//
+// File:    Landmarks.java
+// Package: ---
+// Unit:    Class Landmarks
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class Landmarks is the ALT (A*, landmarks, triangle inequality) heuristic.
+ * A few landmark cities are chosen and the road distance from each landmark
+ * to every city is computed once. By the triangle inequality, for any
+ * landmark L the distance from u to the goal is at least
+ * |d(L, goal) - d(L, u)|, and the heuristic is the largest of those bounds.
+ * <P>
+ * Unlike the straight line distance, the bound follows the roads, so A*
+ * expands far fewer cities on graphs whose roads are not straight.
+ * <P>
+ * Usage: java Landmarks k inputFile
+ * <BR>reports how many cities A* expands with the straight line distance
+ * and with <I>k</I> landmarks for every start/goal pair in the input file.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Landmarks implements Heuristic {
+
+	// distances are stored as floats, which are off by at most 2^-24 of
+	// their value, so every bound is lowered by this much of the distances
+	// it was made from to stay a lower bound
+	private static final double MARGIN = 0x1p-23;
+
+	/**
+	 * the landmark vertices
+	 */
+	public final int[] landmarks;
+
+	// road distance from every landmark to every vertex
+	private final float[][] dist;
+
+	/**
+	 * Choose landmarks and compute their distances, one Dijkstra per
+	 * landmark run in parallel
+	 *
+	 * @param graph the graph
+	 * @param k number of landmarks
+	 */
+	public Landmarks(final Graph graph, int k) {
+		this.landmarks = farthest(graph, Math.min(k, graph.v));
+		this.dist = new float[landmarks.length][];
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		for(int i = 0; i < landmarks.length; i++) {
+			final int l = i;
+			futures.add(ForkJoinPool.commonPool().submit(new Runnable() {
+				@Override
+				public void run() {
+					Dijkstra dijkstra = new Dijkstra(graph);
+					dijkstra.run(landmarks[l]);
+					float[] row = new float[graph.v];
+					for(int u = 0; u < graph.v; u++) {
+						row[u] = (float) dijkstra.dist(u);
+					}
+					dist[l] = row;
+				}
+			}));
+		}
+		try {
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Landmark failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Choose landmarks spread over the map: each one is the city farthest,
+	 * in a straight line, from the landmarks already chosen
+	 *
+	 * @param graph the graph
+	 * @param k number of landmarks
+	 * @return the landmark vertices
+	 */
+	public static int[] farthest(Graph graph, int k) {
+		int[] result = new int[k];
+		double[] nearest = new double[graph.v];
+		int next = 0;
+		for(int u = 0; u < graph.v; u++) {
+			nearest[u] = graph.distance(0, u);
+			if(nearest[u] > nearest[next]) next = u;
+		}
+		for(int i = 0; i < k; i++) {
+			result[i] = next;
+			for(int u = 0; u < graph.v; u++) {
+				nearest[u] = i == 0 ? graph.distance(next, u) :
+					Math.min(nearest[u], graph.distance(result[i], u));
+			}
+			next = 0;
+			for(int u = 0; u < graph.v; u++) {
+				if(nearest[u] > nearest[next]) next = u;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Estimate the distance left as the best landmark bound
+	 *
+	 * @param u the vertex being reached
+	 * @param goal the goal vertex
+	 * @return a lower bound on the distance from <I>u</I> to <I>goal</I>
+	 */
+	@Override
+	public double estimate(int u, int goal) {
+		double best = 0, a, b, bound;
+		for(int l = 0; l < dist.length; l++) {
+			a = dist[l][u];
+			b = dist[l][goal];
+			if(a == Double.POSITIVE_INFINITY || b == Double.POSITIVE_INFINITY) {
+				continue;
+			}
+			bound = Math.abs(a - b) - MARGIN * (a + b);
+			if(bound > best) best = bound;
+		}
+		return best;
+	}
+
+	/**
+	 * main method
+	 * @param args [0] = number of landmarks, [1] = input file
+	 * @throws IOException if problem reading the data
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Usage: java Landmarks k inputFile");
+			System.exit(0);
+		}
+		ArrayList<City> cities = DataParser.getCities("city.dat");
+		Merica america = new Merica(cities,
+				DataParser.getSetEdges("edge.dat", cities));
+		long begin = System.nanoTime();
+		Landmarks alt = new Landmarks(america.graph(),
+				Integer.parseInt(args[0]));
+		System.out.printf("%d landmarks in %.3f seconds%n",
+				alt.landmarks.length, (System.nanoTime() - begin) / 1e9);
+		List<String> lines = Files.readAllLines(Paths.get(args[1]),
+				Charset.defaultCharset());
+		ArrayList<String> names = new ArrayList<String>();
+		for(String line : lines) {
+			if(!line.trim().isEmpty()) names.add(line.trim());
+		}
+		AStar astar = new AStar(america.graph());
+		long straight = 0, landmark = 0;
+		int before, after;
+		City start, goal;
+		for(int i = 0; i + 1 < names.size(); i += 2) {
+			start = america.getCity(names.get(i));
+			goal = america.getCity(names.get(i + 1));
+			if(start == null || goal == null) continue;
+			astar.search(start.n, goal.n);
+			before = astar.expanded();
+			astar.search(start.n, goal.n, alt);
+			after = astar.expanded();
+			straight += before;
+			landmark += after;
+			System.out.println(start.name + " -> " + goal.name + ": " +
+					before + " -> " + after + " expansions");
+		}
+		System.out.println("Straight line: " + straight + " expansions");
+		System.out.println("Landmarks:     " + landmark + " expansions");
+		if(straight > 0) {
+			System.out.printf("Reduction:     %.1f%%%n",
+					100.0 * (straight - landmark) / straight);
+		}
+	}
+}
@@ -7,16 +7,26 @@
 //******************************************************************************
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * Class Merica represents an undirected graph meaning that if
  * there exists an edge connecting some vertex A to some vertex B, then
  * that same edge connects vertex B to vertex A.
+ * <P>
+ * Edges can be added, removed and reweighted while other threads search.
+ * Every update makes a new version of the {@link Graph}, and a search runs
+ * from start to end on the version that was current when it began. Updates
+ * are made one at a time, and every {@link GraphListener} hears about each
+ * one after the new version is in place.
  * 
  * @author Jimi Ford (jhf3617)
  * @version 3-15-2015
@@ -24,10 +34,24 @@ import java.util.PriorityQueue;
 public class Merica {
 
 	public final int v;
-	public final ArrayList<UndirectedEdge> edges;
 	public final ArrayList<City> cities;
 	
-		
+	// cities handed to a thread at a time when making the edge objects
+	private static final int CHUNK = 1024;
+	
+	// private data members, the edge objects are null until first needed
+	private volatile List<UndirectedEdge> edges;
+	private volatile Graph graph;
+	private volatile long version;
+	private int nextEdgeId;
+	private final Object updates = new Object();
+	private final CopyOnWriteArrayList<GraphListener> listeners =
+			new CopyOnWriteArrayList<GraphListener>();
+	private final ThreadLocal<Workspace> workspace;
+	private volatile DistanceTable table;
+	private volatile NameIndex names;
+	private volatile NameIndex foldedNames;
+	private volatile SpatialIndex spatialIndex;
 
 	/**
 	 * construct Merica
@@ -35,9 +59,156 @@ public class Merica {
 	 * @param edges list of connections between cities
 	 */
 	public Merica(ArrayList<City> cities, ArrayList<UndirectedEdge> edges) {
+		this(cities, edges, new Graph(cities, edges));
+	}
+	
+	/**
+	 * construct Merica around a graph that is already in primitive form.
+	 * Searching needs nothing more, so the edge objects, and the edge lists
+	 * of the cities, are only created the first time {@link #edges()} is
+	 * called or the graph is updated.
+	 * @param cities list of cities, without any edges yet
+	 * @param graph connections between cities
+	 */
+	public Merica(ArrayList<City> cities, Graph graph) {
+		this(cities, null, graph);
+	}
+	
+	/*
+	 * package private constructor, for a loader that already indexed the
+	 * names while parsing
+	 */
+	Merica(ArrayList<City> cities, Graph graph, NameIndex names) {
+		this(cities, null, graph);
+		this.names = names.ignoreCase ? null : names;
+	}
+	
+	/*
+	 * private constructor
+	 */
+	private Merica(ArrayList<City> cities, ArrayList<UndirectedEdge> edges,
+			Graph graph) {
 		this.cities = cities;
 		this.edges = edges;
 		this.v = cities.size();
+		this.graph = graph;
+		for(int id : graph.edgeIds) {
+			nextEdgeId = Math.max(nextEdgeId, id + 1);
+		}
+		this.workspace = new ThreadLocal<Workspace>() {
+			@Override
+			protected Workspace initialValue() {
+				return newWorkspace();
+			}
+		};
+	}
+	
+	/*
+	 * private helper function, the edge objects, created from the graph the
+	 * first time they are needed. Every update needs them, so they are
+	 * always created before the first update and describe the graph as it
+	 * was built.
+	 */
+	private List<UndirectedEdge> facade() {
+		List<UndirectedEdge> edges = this.edges;
+		if(edges == null) {
+			synchronized(updates) {
+				edges = this.edges;
+				if(edges == null) {
+					this.edges = edges = edges(cities, graph);
+				}
+			}
+		}
+		return edges;
+	}
+	
+	/*
+	 * private helper function, create one edge object per edge id in id
+	 * order, so every city lists its edges in the order they were added.
+	 * The edges, and then the cities' lists, are split over all cores.
+	 */
+	private static ArrayList<UndirectedEdge> edges(
+			final ArrayList<City> cities, final Graph graph) {
+		int count = 0;
+		for(int id : graph.edgeIds) {
+			count = Math.max(count, id + 1);
+		}
+		final UndirectedEdge[] byId = new UndirectedEdge[count];
+		final AtomicInteger next = new AtomicInteger();
+		// each edge is made from the row of its lower numbered city
+		inParallel(new Runnable() {
+			@Override
+			public void run() {
+				int w, end;
+				for(int start = next.getAndAdd(CHUNK); start < graph.v;
+						start = next.getAndAdd(CHUNK)) {
+					end = Math.min(start + CHUNK, graph.v);
+					for(int u = start; u < end; u++) {
+						for(int i = graph.offsets[u];
+								i < graph.offsets[u + 1]; i++) {
+							w = graph.neighbors[i];
+							if(u < w) {
+								byId[graph.edgeIds[i]] = new UndirectedEdge(
+										graph.edgeIds[i], cities.get(u),
+										cities.get(w), graph.weights[i]);
+							}
+						}
+					}
+				}
+			}
+		}, graph.v / CHUNK + 1, "Creating edges failed");
+		final AtomicInteger nextCity = new AtomicInteger();
+		inParallel(new Runnable() {
+			@Override
+			public void run() {
+				int[] ids;
+				int end;
+				for(int start = nextCity.getAndAdd(CHUNK); start < graph.v;
+						start = nextCity.getAndAdd(CHUNK)) {
+					end = Math.min(start + CHUNK, graph.v);
+					for(int u = start; u < end; u++) {
+						ids = Arrays.copyOfRange(graph.edgeIds,
+								graph.offsets[u], graph.offsets[u + 1]);
+						Arrays.sort(ids);
+						for(int id : ids) {
+							cities.get(u).addEdge(byId[id]);
+						}
+					}
+				}
+			}
+		}, graph.v / CHUNK + 1, "Creating edges failed");
+		ArrayList<UndirectedEdge> edges = new ArrayList<UndirectedEdge>(count);
+		for(UndirectedEdge edge : byId) {
+			if(edge != null) {
+				edges.add(edge);
+			}
+		}
+		return edges;
+	}
+	
+	/*
+	 * private helper function, run copies of a task on the common pool,
+	 * one per core but no more than there are pieces of work, and wait for
+	 * all of them
+	 */
+	private static void inParallel(Runnable task, int pieces, 
+			String failure) {
+		int tasks = Math.max(1, Math.min(pieces, 
+				ForkJoinPool.getCommonPoolParallelism()));
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(tasks);
+		for(int t = 0; t < tasks; t++) {
+			futures.add(ForkJoinPool.commonPool().submit(task));
+		}
+		try {
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(failure, e.getCause());
+		}
 	}
 	
 	/**
@@ -46,26 +217,409 @@ public class Merica {
 	 * @return true if verified
 	 */
 	public boolean verifyCity(String city) {
-		boolean retval = false;
-		for(int i = 0; i < cities.size() && !retval; i++) {
-			retval = city.equals(cities.get(i).name);
-		}
-		return retval;
+		return names(false).find(city) >= 0;
 	}
 	
 	/**
 	 * get city object 
 	 * @param city
-	 * @return
+	 * @return the city, or null if there is no such city
 	 */
 	public City getCity(String city) {
-		City retval = null;
-		for(int i = 0; i < cities.size() && retval == null; i++) {
-			if(cities.get(i).name.equals(city)) {
-				retval = cities.get(i);
+		return getCity(city, false);
+	}
+	
+	/**
+	 * get city object 
+	 * @param city
+	 * @param ignoreCase true to match the name in any case
+	 * @return the city, or null if there is no such city
+	 */
+	public City getCity(String city, boolean ignoreCase) {
+		int id = names(ignoreCase).find(city);
+		return id < 0 ? null : cities.get(id);
+	}
+	
+	/**
+	 * get the cities whose names start with a prefix, in alphabetical order
+	 * @param prefix start of the name
+	 * @param ignoreCase true to match the prefix in any case
+	 * @param limit most cities to return
+	 * @return matching cities
+	 */
+	public ArrayList<City> complete(String prefix, boolean ignoreCase, 
+			int limit) {
+		int[] ids = names(ignoreCase).complete(prefix, limit);
+		ArrayList<City> result = new ArrayList<City>(ids.length);
+		for(int id : ids) {
+			result.add(cities.get(id));
+		}
+		return result;
+	}
+	
+	/*
+	 * private helper function, each index is only built the first time it
+	 * is needed
+	 */
+	private NameIndex names(boolean ignoreCase) {
+		NameIndex index = ignoreCase ? foldedNames : names;
+		if(index == null) {
+			synchronized(this) {
+				index = ignoreCase ? foldedNames : names;
+				if(index == null) {
+					index = new NameIndex(cities, ignoreCase);
+					if(ignoreCase) {
+						foldedNames = index;
+					} else {
+						names = index;
+					}
+				}
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * get the current version of the primitive graph every search runs on.
+	 * It never changes, so hold on to it for a consistent view while the
+	 * graph is being updated.
+	 * @return current graph
+	 */
+	public Graph graph() {
+		return graph;
+	}
+	
+	/**
+	 * get the edges of the current version of the graph, in id order
+	 * @return edges, which cannot be changed through the list
+	 */
+	public List<UndirectedEdge> edges() {
+		return Collections.unmodifiableList(facade());
+	}
+	
+	/**
+	 * get the number of updates made since the graph was built
+	 * @return version number
+	 */
+	public long version() {
+		return version;
+	}
+	
+	/**
+	 * be told about every update from now on
+	 * @param listener what to tell
+	 */
+	public void addListener(GraphListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * stop telling a listener about updates
+	 * @param listener what to stop telling
+	 */
+	public void removeListener(GraphListener listener) {
+		listeners.remove(listener);
+	}
+	
+	/**
+	 * add a road as long as the straight line between its cities
+	 * @param a one city
+	 * @param b another city
+	 * @return the new edge
+	 */
+	public UndirectedEdge addEdge(City a, City b) {
+		return addEdge(a, b, graph.distance(a.n, b.n));
+	}
+	
+	/**
+	 * add a road
+	 * @param a one city
+	 * @param b another city
+	 * @param weight length of the road, at least the straight line
+	 * 			between its cities
+	 * @return the new edge
+	 */
+	public UndirectedEdge addEdge(City a, City b, double weight) {
+		synchronized(updates) {
+			Graph graph = this.graph;
+			checkWeight(graph, a.n, b.n, weight);
+			// the edge objects are made before the cities gain the new one
+			ArrayList<UndirectedEdge> edges = 
+					new ArrayList<UndirectedEdge>(facade());
+			UndirectedEdge edge = new UndirectedEdge(nextEdgeId, a, b, weight);
+			graph = graph.withEdge(a.n, b.n, edge.id, weight);
+			nextEdgeId++;
+			edge.a().replaceEdge(null, edge);
+			edge.b().replaceEdge(null, edge);
+			edges.add(edge);
+			publish(graph, edges, a.n, b.n, Double.POSITIVE_INFINITY, weight);
+			return edge;
+		}
+	}
+	
+	/**
+	 * remove a road
+	 * @param edge an edge of the current graph
+	 */
+	public void removeEdge(UndirectedEdge edge) {
+		synchronized(updates) {
+			ArrayList<UndirectedEdge> edges = 
+					new ArrayList<UndirectedEdge>(facade());
+			edges.remove(indexOf(edges, edge));
+			Graph graph = this.graph.withoutEdge(edge.id);
+			edge.a().replaceEdge(edge, null);
+			edge.b().replaceEdge(edge, null);
+			publish(graph, edges, edge.a().n, edge.b().n, edge.weight,
+					Double.POSITIVE_INFINITY);
+		}
+	}
+	
+	/**
+	 * change the length of a road, for example to account for traffic
+	 * @param edge an edge of the current graph
+	 * @param weight new length of the road, at least the straight line
+	 * 			between its cities
+	 * @return the edge that replaces <I>edge</I>, with the same id
+	 */
+	public UndirectedEdge reweight(UndirectedEdge edge, double weight) {
+		synchronized(updates) {
+			ArrayList<UndirectedEdge> edges = 
+					new ArrayList<UndirectedEdge>(facade());
+			int i = indexOf(edges, edge);
+			City a = edge.a(), b = edge.b();
+			checkWeight(this.graph, a.n, b.n, weight);
+			UndirectedEdge replacement = 
+					new UndirectedEdge(edge.id, a, b, weight);
+			edges.set(i, replacement);
+			Graph graph = this.graph.withWeight(edge.id, weight);
+			a.replaceEdge(edge, replacement);
+			b.replaceEdge(edge, replacement);
+			publish(graph, edges, a.n, b.n, edge.weight, weight);
+			return replacement;
+		}
+	}
+	
+	/*
+	 * private helper function, the straight line heuristic must never
+	 * overestimate, so no road may be shorter than the straight line
+	 */
+	private static void checkWeight(Graph graph, int a, int b, 
+			double weight) {
+		if(!(weight >= graph.estimate(a, b)) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("Weight " + weight + 
+					" is not at least the straight line distance " + 
+					graph.estimate(a, b));
+		}
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private static int indexOf(ArrayList<UndirectedEdge> edges, 
+			UndirectedEdge edge) {
+		for(int i = 0; i < edges.size(); i++) {
+			if(edges.get(i) == edge) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("No such edge: " + edge.id);
+	}
+	
+	/*
+	 * private helper function, make a new version current, drop the
+	 * distance table that no longer describes it and tell the listeners
+	 */
+	private void publish(Graph graph, ArrayList<UndirectedEdge> edges,
+			int a, int b, double before, double after) {
+		this.edges = edges;
+		this.graph = graph;
+		this.table = null;
+		version++;
+		for(GraphListener listener : listeners) {
+			listener.edgeChanged(graph, a, b, before, after);
+		}
+	}
+	
+	/**
+	 * get the calling thread's workspace, moved to the current graph when
+	 * it has changed since the last search
+	 * @return workspace for the current graph
+	 */
+	Workspace workspace() {
+		Workspace ws = workspace.get();
+		ws.rebind(graph);
+		return ws;
+	}
+	
+	/**
+	 * get the city closest to a position
+	 * @param lat latitude
+	 * @param lon longitude
+	 * @return closest city, or null if there are no cities
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 */
+	public City nearest(double lat, double lon) {
+		int id = spatialIndex().nearest(lat, lon);
+		return id < 0 ? null : cities.get(id);
+	}
+	
+	/**
+	 * get the cities closest to a position
+	 * @param lat latitude
+	 * @param lon longitude
+	 * @param k how many cities to find
+	 * @return the <I>k</I> closest cities, closest first
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 */
+	public ArrayList<City> nearest(double lat, double lon, int k) {
+		return cities(spatialIndex().nearest(lat, lon, k));
+	}
+	
+	/**
+	 * get the cities inside a box, edges included
+	 * @param minLat southern edge
+	 * @param minLon western edge
+	 * @param maxLat northern edge
+	 * @param maxLon eastern edge
+	 * @return cities in the box, in no particular order
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 */
+	public ArrayList<City> within(double minLat, double minLon, 
+			double maxLat, double maxLon) {
+		return cities(spatialIndex().within(minLat, minLon, maxLat, maxLon));
+	}
+	
+	/**
+	 * a* path between the cities closest to two positions
+	 * @param lat1 latitude of the start
+	 * @param lon1 longitude of the start
+	 * @param lat2 latitude of the goal
+	 * @param lon2 longitude of the goal
+	 * @return a* path
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 * @throws IllegalStateException if there are no cities
+	 */
+	public SearchResult route(double lat1, double lon1, double lat2, 
+			double lon2) {
+		City start = nearest(lat1, lon1), goal = nearest(lat2, lon2);
+		if(start == null || goal == null) {
+			throw new IllegalStateException("No cities to route between");
+		}
+		return aStar(start, goal);
+	}
+	
+	/**
+	 * get the index of every city's position, which is only built the
+	 * first time it is needed. Cities never move, so it serves every
+	 * version of the graph.
+	 * @return spatial index
+	 */
+	public SpatialIndex spatialIndex() {
+		SpatialIndex index = spatialIndex;
+		if(index == null) {
+			synchronized(this) {
+				index = spatialIndex;
+				if(index == null) {
+					spatialIndex = index = new SpatialIndex(graph);
+				}
 			}
 		}
-		return retval;
+		return index;
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private ArrayList<City> cities(int[] ids) {
+		ArrayList<City> result = new ArrayList<City>(ids.length);
+		for(int id : ids) {
+			result.add(cities.get(id));
+		}
+		return result;
+	}
+	
+	/**
+	 * create scratch space for running searches on this graph from one
+	 * thread, see {@link #search(Algorithm, City, City, Workspace)}
+	 * @return new workspace
+	 */
+	public Workspace newWorkspace() {
+		return new Workspace(graph);
+	}
+	
+	/**
+	 * run a search using the caller's own scratch space. Merica is never
+	 * modified by a search, so any number of threads may search at once
+	 * as long as each uses its own workspace. The search runs on the
+	 * version of the graph the workspace was made for.
+	 * @param algorithm the search to run
+	 * @param start
+	 * @param goal
+	 * @param ws scratch space owned by the calling thread
+	 * @return search path
+	 */
+	public SearchResult search(Algorithm algorithm, City start, City goal,
+			Workspace ws) {
+		int end;
+		switch(algorithm) {
+		case BFS:
+			end = ws.breadthFirst().search(start.n, goal.n);
+			return result("Breadth-First Search Results: ", 
+					SearchResult.path(ws.breadthFirst(), end), ws.graph());
+		case DFS:
+			end = ws.depthFirst().search(start.n, goal.n);
+			return result("Depth-First Search Results: ", 
+					SearchResult.path(ws.depthFirst(), end), ws.graph());
+		default:
+			return aStar(start, goal, ws.astar(), ws.graph());
+		}
+	}
+	
+	/**
+	 * wrap a path in a search result, measuring its length by the weights
+	 * of the edges it takes in the current graph
+	 * @param title title of result
+	 * @param path path taken in result
+	 * @return search result
+	 */
+	public SearchResult result(String title, ArrayList<City> path) {
+		Graph graph = this.graph;
+		double distance = 0;
+		for(int i = 0; i < path.size() - 1; i++) {
+			distance += graph.weight(path.get(i).n, path.get(i + 1).n);
+		}
+		return new SearchResult(title, path, distance);
+	}
+	
+	/**
+	 * wrap a path of city ids in a search result, measuring its length by
+	 * the weights of the edges it takes in the current graph
+	 * @param title title of result
+	 * @param path ids of the cities on the path
+	 * @return search result
+	 */
+	public SearchResult result(String title, int[] path) {
+		return result(title, path, graph);
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private SearchResult result(String title, int[] path, Graph graph) {
+		double distance = 0;
+		for(int i = 0; i < path.length - 1; i++) {
+			distance += graph.weight(path[i], path[i + 1]);
+		}
+		return new SearchResult(title, cities, path, distance);
+	}
+	
+	/**
+	 * answer a* queries by reading the shortest path from a precomputed
+	 * table instead of searching
+	 * @param table table built for this graph, or null to search again
+	 */
+	public void useDistanceTable(DistanceTable table) {
+		this.table = table;
 	}
 	
 	/**
@@ -75,8 +629,7 @@ public class Merica {
 	 * @return bfs path
 	 */
 	public SearchResult bfs(City start, City goal) {
-		ArrayList<City> path = bfsPath(start,goal);
-		return new SearchResult("Breadth-First Search Results: ", path);
+		return search(Algorithm.BFS, start, goal, workspace());
 	}
 	
 	/**
@@ -86,8 +639,7 @@ public class Merica {
 	 * @return dfs path
 	 */
 	public SearchResult dfs(City start, City goal) {
-		ArrayList<City> path = dfsPath(start,goal);
-		return new SearchResult("Depth-First Search Results: ", path);
+		return search(Algorithm.DFS, start, goal, workspace());
 	}
 	
 	/**
@@ -97,254 +649,186 @@ public class Merica {
 	 * @return a* path
 	 */
 	public SearchResult aStar(City start, City goal) {
-		ArrayList<City> path = astarPath(start, goal);
-		return new SearchResult("A* Search Results: ", path);
+		DistanceTable table = this.table;
+		if(table != null) {
+			return table.route(start, goal);
+		}
+		return search(Algorithm.ASTAR, start, goal, workspace());
 	}
 	
 	/**
-	 * a* path
+	 * a* path guided by another heuristic, such as {@link Landmarks}
 	 * @param start
 	 * @param goal
+	 * @param heuristic estimates the distance left to the goal
 	 * @return a* path
 	 */
-	private ArrayList<City> astarPath(City start, City goal) {
-		PriorityQueue<Node> pq = new PriorityQueue<Node>(10, new FNodeComparator());
-		LinkedList<Node> closed = new LinkedList<Node>();
-		Node X = new Node(start);
-		Node next;
-		UndirectedEdge edge;
-		City current, t1;
-		pq.add(X);
-		boolean found = false;
-		while(!pq.isEmpty() && !found) {
-			X = pq.remove();
-			current = X.payload;
-			if(X.payload.equals(goal)) {
-				found = true;
-				break;
-			} else {
-				for(int i = 0; i < current.edgeCount(); i++) {
-					edge = current.getEdges().get(i);
-					t1 = edge.other(current);
-					next = new Node(X, t1);
-					if(!closed.contains(next) && !pq.contains(next)) {
-						next.g = edge.weight + X.g;
-						next.h = t1.distanceTo(goal);
-						pq.add(next);
-					}
-				}
-			}
-		}
-		ArrayList<City> result = new ArrayList<City>();
-		while(!X.isRoot()) {
-			result.add(0,X.payload);
-			X = X.parent;
-		}
-		result.add(0, X.payload);
-		return result;
+	public SearchResult aStar(City start, City goal, Heuristic heuristic) {
+		return aStar(start, goal, workspace().astar(), heuristic);
 	}
-
 	
+	/**
+	 * shortest paths from one city to every city, from which any number
+	 * of routes can be read, see {@link TreeCache} to keep them
+	 * @param source the city every path starts from
+	 * @return shortest path tree
+	 */
+	public ShortestPathTree shortestPathTree(City source) {
+		Dijkstra dijkstra = workspace().dijkstra();
+		dijkstra.run(source.n);
+		return new ShortestPathTree(cities, source.n, dijkstra);
+	}
 	
-	private ArrayList<City> bfsPath(City start, City goal) {
-		int distance = 0, verticesToProcess = 1, uniqueNeighbors = 0;
-		LinkedList<Node> queue = new LinkedList<Node>();
-		boolean[] visited = new boolean[v];
-		visited[start.n] = true;
-		City current, t2;
-		Node node = null, next = null;
-		
-		queue.add(new Node(start));
-		while(!queue.isEmpty()) {
-			node = queue.removeFirst();
-			current = node.payload;
-			if(current.equals(goal)) {
-				break;
-//				return distance;
-			}
-			ArrayList<Node> temp = new ArrayList<Node>(current.edgeCount());
-			for(int i = 0; i < current.edgeCount(); i++) {
-				next = new Node(node, 
-						current.getEdges().get(i).other(current));
-				temp.add(next);
-			}
-			Collections.sort(temp, new AlphabetNodeComparator());
-			for(int i = 0; i < temp.size(); i++) {
-				next = temp.get(i);
-				t2 = next.payload;
-				if(!visited[t2.n]) {
-					visited[t2.n] = true;
-					
-					queue.add(new Node(node, t2));
-					uniqueNeighbors++;
-				}
-			}
-			verticesToProcess--;
-			if(verticesToProcess <= 0) {
-				verticesToProcess = uniqueNeighbors;
-				uniqueNeighbors = 0;
-				distance++;
-			}
-			
-		}
-		ArrayList<City> result = new ArrayList<City>(distance);
-		while(!node.isRoot()) {
-			result.add(0,node.payload);
-			node = node.parent;
-		}
-		result.add(0, node.payload);
-		return result;
+	/**
+	 * cities reachable within a distance by road. The search stops at the
+	 * budget instead of reaching every city.
+	 * @param source the city the paths start from
+	 * @param miles the longest path to follow
+	 * @return ids and distances of the cities other than the source no
+	 * 			farther than <I>miles</I>, closest first
+	 */
+	public DistanceList withinDistance(City source, double miles) {
+		return workspace().dijkstra().within(source.n, miles);
 	}
 
-	private ArrayList<City> dfsPath(City start, City goal) {
-		ArrayList<Node> open = new ArrayList<Node>();
-		ArrayList<Node> closed = new ArrayList<Node>();
-		ArrayList<City> children;
-		City c, it;
-		Node t1, t2, X = null;
-		t1 = new Node(start);
-		open.add(t1);
-		boolean found = false;
-		while(!open.isEmpty() && !found) {
-			X = open.remove(0);
-			c = X.payload;
-			if(c.equals(goal)) {
-				found = true;
-				break;
-			} else {
-				children = new ArrayList<City>(X.payload.edgeCount());
-				
-				for(int i = 0; i < c.edgeCount(); i++) {
-					it = c.getEdges().get(i).other(c);
-					if(it.equals(goal)) {
-						X = new Node(X, it);
-						found = true;
-						break;
-					} else {
-						children.add(it);
-					}
-				}
-				if(!found) {
-					closed.add(X);
-				}
-				for(int discard = 0; discard < children.size(); ) {
-					City current = children.get(discard);
-					boolean increment = true;
-					for(Node each : open) {
-						if(each.payload.equals(current)) {
-							children.remove(discard);
-							increment = false;
-							break;
-						}
-					}
-					if(increment) {
-						for(Node each: closed) {
-							if(each.payload.equals(current)) {
-								children.remove(discard);
-								increment = false;
-								break;
-							}
-						}
-						if(increment) {
-							discard++;
-						}
+	/**
+	 * cities closest by road. The search stops once it has settled
+	 * <I>k</I> cities instead of reaching every city.
+	 * @param source the city the paths start from
+	 * @param k how many cities to find
+	 * @return ids and distances of the <I>k</I> closest cities other than
+	 * 			the source, or of every reachable one if there are fewer,
+	 * 			closest first
+	 */
+	public DistanceList nearestByRoad(City source, int k) {
+		return workspace().dijkstra().nearest(source.n, k);
+	}
+
+	/**
+	 * shortest distances from every origin to every destination. One
+	 * Dijkstra runs from each city on the shorter side, stopping as soon as
+	 * it has reached every city on the other side, and the runs are spread
+	 * over all cores.
+	 * @param origins cities the paths start from
+	 * @param destinations cities the paths end at
+	 * @return row major matrix with the distance from 
+	 * 			<TT>origins.get(i)</TT> to <TT>destinations.get(j)</TT> at
+	 * 			<TT>i * destinations.size() + j</TT>, infinite when there is
+	 * 			no path
+	 */
+	public double[] distanceMatrix(List<City> origins, 
+			List<City> destinations) {
+		long cells = (long) origins.size() * destinations.size();
+		if(cells > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many cells for a " +
+					"distance matrix: " + cells);
+		}
+		final Graph graph = this.graph;
+		// the graph is undirected, so search from whichever side is smaller
+		final boolean transpose = destinations.size() < origins.size();
+		final int[] sources = ids(transpose ? destinations : origins);
+		final int[] targets = ids(transpose ? origins : destinations);
+		final int columns = destinations.size();
+		final double[] matrix = new double[(int) cells];
+		final AtomicInteger next = new AtomicInteger();
+		inParallel(new Runnable() {
+			@Override
+			public void run() {
+				Dijkstra dijkstra = dijkstra(graph);
+				double d;
+				for(int i = next.getAndIncrement(); i < sources.length;
+						i = next.getAndIncrement()) {
+					dijkstra.run(sources[i], targets);
+					for(int j = 0; j < targets.length; j++) {
+						d = dijkstra.dist(targets[j]);
+						matrix[transpose ? j * columns + i : 
+							i * columns + j] = d;
 					}
-					
-				}
-				Collections.sort(children, new ReverseAlphabetCityComparator());
-				for(City each : children) {
-					open.add(0, new Node(X, each));
 				}
 			}
-		}
-		ArrayList<City> result = new ArrayList<City>();
-		while(!X.isRoot()) {
-			result.add(0,X.payload);
-			X = X.parent;
-		}
-		result.add(0,X.payload);
-		return result;
-
+		}, sources.length, "Distance matrix failed");
+		return matrix;
 	}
 	
-	/**
-	 * private internal class used for traversals
-	 * @author jimiford
-	 *
+	/*
+	 * private helper function
 	 */
-	private class Node {
-		public final Node parent;
-		public final City payload;
-		private double g;
-		private double h;
-		
-		private Node(City payload) {
-			parent = null;
-			this.payload = payload;
-		}
-		
-		private Node(Node parent, City payload) {
-			this.parent = parent;
-			this.payload = payload;
-		}
-		
-		public boolean equals(Object o) {
-			if(o == this) return true;
-			if(!(o instanceof Node)) return false;
-			Node casted = (Node)o;
-			return this.payload.equals(casted.payload);
-		}
-		
-		private boolean isRoot() {
-			return parent == null;
-		}
-		
-		public double f() {
-			return g + h;
+	private static int[] ids(List<City> cities) {
+		int[] ids = new int[cities.size()];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = cities.get(i).n;
 		}
+		return ids;
 	}
-
+	
+	/*
+	 * private helper function, the calling thread's Dijkstra engine for a
+	 * version of the graph
+	 */
+	private Dijkstra dijkstra(Graph graph) {
+		Workspace ws = workspace();
+		return ws.graph() == graph ? ws.dijkstra() : new Dijkstra(graph);
+	}
+	
 	/**
-	 * sort cities in reverse order
-	 * @author jimiford
-	 *
+	 * bidirectional a* path, searching from both ends on this thread
+	 * @param start
+	 * @param goal
+	 * @return a* path
 	 */
-	private class ReverseAlphabetCityComparator implements Comparator<City> {
-		@Override
-		public int compare(City o1, City o2) {
-			return o2.name.compareTo(o1.name);
-		}
+	public SearchResult bidirectionalAStar(City start, City goal) {
+		return bidirectionalAStar(start, goal, false);
 	}
 	
 	/**
-	 * sort nodes by their heuristic function
-	 * @author jimiford
-	 *
+	 * bidirectional a* path
+	 * @param start
+	 * @param goal
+	 * @param parallel true to search from the goal on another thread
+	 * @return a* path
 	 */
-	private class FNodeComparator implements Comparator<Node> {
-		@Override
-		public int compare(Node o1, Node o2) {
-			if(o1.f() < o2.f()){
-	            return -1;
-	        }else if(o1.f() > o2.f()){
-	            return 1;
-	        }else{
-	        	return o1.payload.name.compareTo(o2.payload.name);
-	        }
+	public SearchResult bidirectionalAStar(City start, City goal, 
+			boolean parallel) {
+		Workspace ws = workspace();
+		final BidirectionalAStar search = ws.bidirectional();
+		int meet = search.search(start.n, goal.n, ws.graph(), parallel);
+		if(meet < 0) {
+			return new SearchResult("Bidirectional A* Search Results: ", 
+					cities, new int[] {start.n}, 0);
 		}
-		
+		int[] forward = SearchResult.path(new PathTree() {
+			@Override
+			public int parent(int u) {
+				return search.forwardParent(u);
+			}
+		}, meet);
+		int length = forward.length;
+		for(int u = search.backwardParent(meet); u >= 0; 
+				u = search.backwardParent(u)) {
+			length++;
+		}
+		int[] path = Arrays.copyOf(forward, length);
+		int i = forward.length;
+		for(int u = search.backwardParent(meet); u >= 0; 
+				u = search.backwardParent(u)) {
+			path[i++] = u;
+		}
+		return new SearchResult("Bidirectional A* Search Results: ", cities,
+				path, search.distance());
 	}
 	
 	/**
-	 * sort nodes by their cities name
-	 * @author jimiford
-	 *
+	 * a* path
+	 * @param start
+	 * @param goal
+	 * @param astar engine to search with
+	 * @param heuristic estimates the distance left to the goal
+	 * @return a* path
 	 */
-	private class AlphabetNodeComparator implements Comparator<Node> {
-		@Override
-		public int compare(Node o1, Node o2) {
-			return o1.payload.name.compareTo(o2.payload.name);
-		}
-		
+	private SearchResult aStar(City start, City goal, AStar astar,
+			Heuristic heuristic) {
+		int end = astar.search(start.n, goal.n, heuristic);
+		return new SearchResult("A* Search Results: ", cities, 
+				SearchResult.path(astar, end), astar.g(end));
 	}
 }
@@ -0,0 +1,28 @@
+//******************************************************************************
+//
+// File:    Metric.java
+// Package: ---
+// Unit:    Enum Metric
+//
+//******************************************************************************
+
+/**
+ * Enum Metric is the way a {@link Graph} measures the distance between two
+ * cities, both for edge weights and for the a* heuristic.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public enum Metric {
+
+	/**
+	 * straight line distance in degrees of latitude and longitude, times
+	 * 100, exactly as {@link City#distanceTo(City)}
+	 */
+	PLANAR,
+
+	/**
+	 * great-circle distance over the surface of the earth, in miles
+	 */
+	GREAT_CIRCLE
+}
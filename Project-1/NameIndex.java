@@ -0,0 +1,293 @@
+//******************************************************************************
+//
+// File:    NameIndex.java
+// Package: ---
+// Unit:    Class NameIndex
+//
+//******************************************************************************
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Class NameIndex finds cities by name. Exact lookups go through an
+ * open-addressing hash table, and prefix lookups walk a trie of the names.
+ * Both are built once and never change, so any number of threads may use
+ * the index at once.
+ * <P>
+ * A case-insensitive index folds every name to lower case. If two names
+ * differ only in case, an exact lookup finds the one that sorts first.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class NameIndex {
+
+	/**
+	 * true if lookups ignore case
+	 */
+	public final boolean ignoreCase;
+
+	// hash table, linear probing, null for an empty slot
+	private final String[] keys;
+	private final int[] ids;
+	private final int mask;
+
+	// trie in first-child/next-sibling form, node 0 is the root, and the
+	// children of every node are in alphabetical order
+	private char[] label;
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] terminal;
+	private int nodes;
+
+	/**
+	 * Construct the index
+	 *
+	 * @param cities the cities to index, where <TT>cities.get(i).n == i</TT>
+	 * @param ignoreCase true if lookups should ignore case
+	 */
+	public NameIndex(final ArrayList<City> cities, boolean ignoreCase) {
+		this.ignoreCase = ignoreCase;
+		int n = cities.size();
+		final String[] folded = new String[n];
+		Integer[] order = new Integer[n];
+		for(int i = 0; i < n; i++) {
+			folded[i] = fold(cities.get(i).name);
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				int c = folded[o1].compareTo(folded[o2]);
+				return c != 0 ? c : cities.get(o1).name.compareTo(
+						cities.get(o2).name);
+			}
+		});
+		int capacity = Integer.highestOneBit(Math.max(2 * n, 2) - 1) << 1;
+		this.keys = new String[capacity];
+		this.ids = new int[capacity];
+		this.mask = capacity - 1;
+		this.label = new char[16];
+		this.firstChild = new int[16];
+		this.nextSibling = new int[16];
+		this.terminal = new int[16];
+		newNode('\0');
+		int[] lastChild = new int[16];
+		lastChild[0] = -1;
+		for(int i : order) {
+			put(folded[i], i);
+			lastChild = insert(folded[i], i, lastChild);
+		}
+	}
+
+	/**
+	 * Find a city by its whole name
+	 *
+	 * @param name the name
+	 * @return the city's id, or -1 if there is no such city
+	 */
+	public int find(String name) {
+		String key = fold(name);
+		for(int i = slot(key.hashCode()); keys[i] != null; i = (i + 1) & mask) {
+			if(keys[i].equals(key)) {
+				return ids[i];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a city by a name given as bytes, without creating a String.
+	 * Names that are not plain ASCII are decoded with the default charset.
+	 *
+	 * @param bytes holds the name
+	 * @param from index of the first byte of the name
+	 * @param to index after the last byte of the name
+	 * @return the city's id, or -1 if there is no such city
+	 */
+	public int find(ByteBuffer bytes, int from, int to) {
+		int hash = 0, length = to - from;
+		byte b;
+		for(int k = from; k < to; k++) {
+			b = bytes.get(k);
+			if(b < 0) {
+				byte[] copy = new byte[length];
+				for(int j = 0; j < length; j++) {
+					copy[j] = bytes.get(from + j);
+				}
+				return find(new String(copy, Charset.defaultCharset()));
+			}
+			hash = 31 * hash + fold(b);
+		}
+		String key;
+		for(int i = slot(hash); (key = keys[i]) != null; i = (i + 1) & mask) {
+			if(key.length() == length && matches(key, bytes, from)) {
+				return ids[i];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the cities whose names start with a prefix, in alphabetical
+	 * order
+	 *
+	 * @param prefix the start of the name
+	 * @param limit the most ids to return
+	 * @return the ids of the matching cities
+	 */
+	public int[] complete(String prefix, int limit) {
+		String key = fold(prefix);
+		int node = 0;
+		for(int i = 0; i < key.length() && node >= 0; i++) {
+			node = child(node, key.charAt(i));
+		}
+		if(node < 0 || limit <= 0) {
+			return new int[0];
+		}
+		int[] result = new int[Math.min(limit, 16)];
+		int count = 0;
+		// depth first, siblings of the prefix node itself are not visited
+		int[] stack = new int[16];
+		int top = 0;
+		if(terminal[node] >= 0) {
+			result[count++] = terminal[node];
+		}
+		int next = firstChild[node];
+		while(count < limit && (next >= 0 || top > 0)) {
+			if(next < 0) {
+				next = stack[--top];
+				continue;
+			}
+			if(terminal[next] >= 0) {
+				if(count == result.length) {
+					result = Arrays.copyOf(result,
+							Math.min(limit, count * 2));
+				}
+				result[count++] = terminal[next];
+			}
+			if(firstChild[next] >= 0) {
+				if(top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = nextSibling[next];
+				next = firstChild[next];
+			} else {
+				next = nextSibling[next];
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private String fold(String name) {
+		return ignoreCase ? name.toLowerCase(Locale.ROOT) : name;
+	}
+
+	/*
+	 * private helper function, fold an ASCII character the way
+	 * toLowerCase(Locale.ROOT) does
+	 */
+	private char fold(byte b) {
+		return (char) (ignoreCase && b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private boolean matches(String key, ByteBuffer bytes, int from) {
+		for(int k = 0; k < key.length(); k++) {
+			if(key.charAt(k) != fold(bytes.get(from + k))) return false;
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function, spread the bits of a hash code
+	 */
+	private int slot(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x45d9f3b;
+		hash ^= hash >>> 16;
+		return hash & mask;
+	}
+
+	/*
+	 * private helper function, the first id stored for a key wins
+	 */
+	private void put(String key, int id) {
+		int i = slot(key.hashCode());
+		while(keys[i] != null) {
+			if(keys[i].equals(key)) return;
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		ids[i] = id;
+	}
+
+	/*
+	 * private helper function, keys arrive in sorted order so a new child
+	 * always goes after its parent's last child
+	 */
+	private int[] insert(String key, int id, int[] lastChild) {
+		int node = 0, c;
+		for(int i = 0; i < key.length(); i++) {
+			c = lastChild[node];
+			if(c < 0 || label[c] != key.charAt(i)) {
+				int added = newNode(key.charAt(i));
+				if(added >= lastChild.length) {
+					lastChild = Arrays.copyOf(lastChild, label.length);
+				}
+				lastChild[added] = -1;
+				if(c < 0) {
+					firstChild[node] = added;
+				} else {
+					nextSibling[c] = added;
+				}
+				lastChild[node] = added;
+				c = added;
+			}
+			node = c;
+		}
+		if(terminal[node] < 0) {
+			terminal[node] = id;
+		}
+		return lastChild;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private int newNode(char c) {
+		if(nodes == label.length) {
+			int n = nodes * 2;
+			label = Arrays.copyOf(label, n);
+			firstChild = Arrays.copyOf(firstChild, n);
+			nextSibling = Arrays.copyOf(nextSibling, n);
+			terminal = Arrays.copyOf(terminal, n);
+		}
+		label[nodes] = c;
+		firstChild[nodes] = -1;
+		nextSibling[nodes] = -1;
+		terminal[nodes] = -1;
+		return nodes++;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private int child(int node, char c) {
+		for(int i = firstChild[node]; i >= 0; i = nextSibling[i]) {
+			if(label[i] == c) return i;
+			if(label[i] > c) break;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,284 @@
+//******************************************************************************
+//
+// File:    ParallelGraphBuilder.java
+// Package: ---
+// Unit:    Class ParallelGraphBuilder
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class ParallelGraphBuilder builds the same graph as {@link GraphBuilder}
+ * using every core. The edge file is split at line boundaries and each piece
+ * is parsed on its own thread. Degrees are counted with one atomic counter
+ * per city, row offsets come from a prefix sum, and every edge is scattered
+ * into its rows through atomic cursors, without locks.
+ * <P>
+ * Edges land in a row in whatever order the threads reach it, and then
+ * every row is sorted by neighbor rank and edge id as {@link Graph}
+ * requires. Edge ids are numbered in file order, so the finished graph is
+ * identical to the one the serial build produces. The {@link Merica} it
+ * is handed to makes its edge objects only when they are first needed,
+ * and then on every core as well.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class ParallelGraphBuilder {
+
+	// pieces the edge file is split into per thread, so that threads that
+	// finish early can take more work
+	private static final int PIECES_PER_THREAD = 4;
+
+	// private data members
+	private final Path file;
+	private final String edgeDat;
+	private final ArrayList<City> cities;
+	private final Metric metric;
+	private final NameIndex lookup;
+	private final ForkJoinPool pool;
+	private final int parallelism;
+
+	/*
+	 * private constructor
+	 */
+	private ParallelGraphBuilder(String edgeDat, ArrayList<City> cities,
+			Metric metric, ForkJoinPool pool, int parallelism) {
+		this.file = Paths.get(edgeDat);
+		this.edgeDat = edgeDat;
+		this.cities = cities;
+		this.metric = metric;
+		this.lookup = new NameIndex(cities, false);
+		this.pool = pool;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Parse cities and edges into a graph on several threads
+	 *
+	 * @param cityDat filename of city data
+	 * @param edgeDat filename of edge data
+	 * @param parallelism the number of threads to use
+	 * @return parsed graph, identical to {@link DataParser#load}
+	 * @throws IOException if problem reading either file
+	 */
+	public static Merica load(String cityDat, String edgeDat, int parallelism)
+			throws IOException {
+		return load(cityDat, edgeDat, Metric.PLANAR, parallelism);
+	}
+
+	/**
+	 * Parse cities and edges into a graph on several threads
+	 *
+	 * @param cityDat filename of city data
+	 * @param edgeDat filename of edge data
+	 * @param metric how the graph measures distances
+	 * @param parallelism the number of threads to use
+	 * @return parsed graph, identical to {@link DataParser#load}
+	 * @throws IOException if problem reading either file
+	 */
+	public static Merica load(String cityDat, String edgeDat, Metric metric,
+			int parallelism) throws IOException {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		ArrayList<City> cities = DataParser.getCities(cityDat);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			ParallelGraphBuilder builder = new ParallelGraphBuilder(edgeDat,
+					cities, metric, pool, parallelism);
+			// the names were indexed for parsing, so Merica need not do it
+			return new Merica(cities, builder.build(), builder.lookup);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/*
+	 * private helper function
+	 */
+	private Graph build() throws IOException {
+		// parse the pieces
+		long[] bounds = Tokenizer.split(file, parallelism * PIECES_PER_THREAD);
+		final Piece[] pieces = new Piece[bounds.length - 1];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for(int i = 0; i < pieces.length; i++) {
+			final Piece piece = pieces[i] = new Piece(bounds[i], bounds[i + 1]);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					piece.parse();
+					return null;
+				}
+			});
+		}
+		run(tasks);
+
+		// number the edges in file order and count degrees
+		int v = cities.size(), edges = 0;
+		final AtomicIntegerArray degree = new AtomicIntegerArray(v + 1);
+		tasks.clear();
+		for(final Piece piece : pieces) {
+			piece.firstId = edges;
+			edges += piece.edges;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int e = 0; e < piece.edges; e++) {
+						degree.incrementAndGet(piece.a[e] + 1);
+						degree.incrementAndGet(piece.b[e] + 1);
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks);
+		final int[] offsets = new int[v + 1];
+		for(int u = 0; u < v; u++) {
+			offsets[u + 1] = offsets[u] + degree.get(u + 1);
+		}
+
+		// scatter the edges, reusing the counters as row cursors
+		for(int u = 0; u < v; u++) {
+			degree.set(u, offsets[u]);
+		}
+		final int[] neighbors = new int[2 * edges];
+		final int[] edgeIds = new int[2 * edges];
+		tasks.clear();
+		for(final Piece piece : pieces) {
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					int x, y, id, k;
+					for(int e = 0; e < piece.edges; e++) {
+						x = piece.a[e];
+						y = piece.b[e];
+						id = piece.firstId + e;
+						k = degree.getAndIncrement(x);
+						neighbors[k] = y;
+						edgeIds[k] = id;
+						k = degree.getAndIncrement(y);
+						neighbors[k] = x;
+						edgeIds[k] = id;
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks);
+
+		// put every row in order and fill in the weights
+		double[] lat = new double[v], lon = new double[v];
+		for(int u = 0; u < v; u++) {
+			lat[u] = cities.get(u).lat;
+			lon[u] = cities.get(u).lon;
+		}
+		final double[] weights = new double[2 * edges];
+		final int[] rank = Graph.ranks(cities), byRank = Graph.byRank(rank);
+		final Graph graph = new Graph(metric, offsets, neighbors, weights,
+				edgeIds, lat, lon, rank);
+		tasks.clear();
+		int step = Math.max(1, (v + pieces.length - 1) / pieces.length);
+		for(int from = 0; from < v; from += step) {
+			final int lo = from, hi = Math.min(v, from + step);
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Graph.sortRows(offsets, neighbors, edgeIds, rank, byRank,
+							lo, hi);
+					for(int u = lo; u < hi; u++) {
+						for(int k = offsets[u]; k < offsets[u + 1]; k++) {
+							weights[k] = graph.distance(u, neighbors[k]);
+						}
+					}
+					return null;
+				}
+			});
+		}
+		run(tasks);
+		return graph;
+	}
+
+	/*
+	 * private helper function, run tasks on the pool and wait for all of them
+	 */
+	private void run(List<Callable<Void>> tasks) throws IOException {
+		try {
+			for(Future<Void> result : pool.invokeAll(tasks)) {
+				result.get();
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while building the graph", e);
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) throw (IOException) cause;
+			if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Class Piece holds the edges parsed from one piece of the edge file
+	 */
+	private class Piece {
+
+		private final long from, to;
+		private int[] a = new int[16];
+		private int[] b = new int[16];
+		private int edges;
+		private int firstId;
+
+		private Piece(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		private void parse() throws IOException {
+			if(from == to) return;
+			Tokenizer in = new Tokenizer(file, from, to);
+			try {
+				int x, y;
+				while(in.nextLine()) {
+					if(in.tokens() <= 1) continue;
+					x = city(in, 0);
+					y = city(in, 1);
+					if(x == y) {
+						throw new IllegalArgumentException("Cannot have self loop");
+					}
+					if(edges == a.length) {
+						a = Arrays.copyOf(a, edges * 2);
+						b = Arrays.copyOf(b, edges * 2);
+					}
+					a[edges] = x;
+					b[edges] = y;
+					edges++;
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		// line numbers are counted from the start of the piece
+		private int city(Tokenizer in, int token) throws IOException {
+			int n = in.find(lookup, token);
+			if(n < 0) {
+				throw new IOException(edgeDat + ": line " + in.line() +
+						" after byte " + from + ": no such city: " +
+						in.string(token));
+			}
+			return n;
+		}
+	}
+}
@@ -0,0 +1,25 @@
+//******************************************************************************
+//
+// File:    PathTree.java
+// Package: ---
+// Unit:    Interface PathTree
+//
+//******************************************************************************
+
+/**
+ * Interface PathTree is the parent pointers a search leaves behind, from
+ * which the path to any vertex it reached can be read backwards.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public interface PathTree {
+
+	/**
+	 * Get the previous vertex on the path found
+	 *
+	 * @param u a vertex the search reached
+	 * @return the vertex before <I>u</I>, or -1 for the start
+	 */
+	public int parent(int u);
+}
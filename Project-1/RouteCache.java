@@ -0,0 +1,436 @@
+//******************************************************************************
+//
+// File:    RouteCache.java
+// Package: ---
+// Unit:    Class RouteCache
+//
+//******************************************************************************
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class RouteCache answers repeated a* queries without searching. It keeps
+ * the most recently used shortest paths, up to a fixed number, and is safe
+ * for any number of threads at once.
+ * <P>
+ * The graph is undirected, so a path and its reverse are stored once under
+ * a key made of the two end points in increasing order. Entries are spread
+ * over segments, each an access ordered {@link LinkedHashMap} behind its own
+ * lock, so threads asking about different pairs rarely wait for each other.
+ * Each segment holds an equal share of the capacity and evicts its own
+ * least recently used path, so recency is kept per segment rather than
+ * over the whole cache. A small cache uses fewer segments, so that every
+ * segment has room for at least one path.
+ * <P>
+ * Every part of a shortest path is itself a shortest path. With sub-path
+ * reuse on, each city remembers the last cached path through it, and a
+ * query between two cities on that path is answered from it. This keeps
+ * one reference per city alive, so the paths it points to are not freed
+ * when they are evicted.
+ * <P>
+ * The cache listens for updates to the graph and drops only the paths an
+ * update can affect. A path using an edge that got longer or was removed
+ * is dropped. When an edge gets shorter or is added, a path is kept if
+ * even the straight line to the edge, plus the edge, plus the straight
+ * line from it is no shorter than the path, since then no route through
+ * the edge can beat it.
+ * <P>
+ * A path evicted from the cache may still be remembered by the cities on
+ * it, so an update checks those paths as well. Each path also records the
+ * last version of the graph it was checked against, and only a path
+ * checked against the current version answers a query from one of its
+ * parts.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class RouteCache implements GraphListener {
+
+	private static final String TITLE = "A* Search Results: ";
+	private static final int SEGMENTS = 16;
+
+	// private data members
+	private final Merica america;
+	private final Segment[] segments;
+	private final AtomicReferenceArray<Route> through;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder subPathHits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder invalidated = new LongAdder();
+	private Graph checked;
+
+	/**
+	 * Construct a cache in front of a graph, listening for its updates
+	 *
+	 * @param america the graph to search on a miss
+	 * @param capacity the most paths to keep
+	 * @param subPaths true to answer queries from parts of cached paths
+	 */
+	public RouteCache(Merica america, int capacity, boolean subPaths) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.america = america;
+		// a power of two, no more than the capacity
+		int n = Integer.highestOneBit(Math.min(capacity, SEGMENTS));
+		this.segments = new Segment[n];
+		for(int i = 0; i < n; i++) {
+			segments[i] = new Segment(capacity / n +
+					(i < capacity % n ? 1 : 0));
+		}
+		this.through = subPaths ?
+				new AtomicReferenceArray<Route>(america.v) : null;
+		this.checked = america.graph();
+		america.addListener(this);
+	}
+
+	/**
+	 * a* path, from the cache when possible
+	 * @param start
+	 * @param goal
+	 * @return a* path
+	 */
+	public SearchResult aStar(City start, City goal) {
+		int s = start.n, g = goal.n;
+		long key = key(s, g);
+		Segment segment = segment(key);
+		Graph graph = america.graph();
+		Route route;
+		synchronized(segment) {
+			route = segment.get(key);
+		}
+		if(route != null) {
+			hits.increment();
+			return result(route.path, route.length, s > g);
+		}
+		if(through != null) {
+			Route first = through.get(s), second = through.get(g);
+			SearchResult result = fromSubPath(first, s, g, key, graph);
+			if(result == null && second != first) {
+				result = fromSubPath(second, s, g, key, graph);
+			}
+			if(result != null) {
+				subPathHits.increment();
+				return result;
+			}
+		}
+		misses.increment();
+		// search the version of the graph the thread's workspace is for
+		Workspace ws = america.workspace();
+		AStar astar = ws.astar();
+		graph = ws.graph();
+		int end = astar.search(s, g);
+		int[] path = SearchResult.path(astar, end);
+		if(end != g) {
+			// the goal cannot be reached, nothing worth keeping
+			return result(path, astar.g(end), false);
+		}
+		if(s > g) {
+			reverse(path);
+		}
+		route = new Route(path, astar.g(end), graph);
+		if(put(key, route, graph) && through != null) {
+			for(int u : path) {
+				through.set(u, route);
+			}
+		}
+		return result(path, route.length, s > g);
+	}
+
+	/**
+	 * Drop the cached paths an update to the graph can affect, including
+	 * paths already evicted that cities still remember
+	 *
+	 * @param graph the new version of the graph
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param before weight of the edge before, infinity if it was added
+	 * @param after weight of the edge now, infinity if it was removed
+	 */
+	@Override
+	public void edgeChanged(Graph graph, int a, int b, double before,
+			double after) {
+		Iterator<Route> routes;
+		Route route;
+		// updates are reported one at a time, in order
+		Graph previous = checked;
+		checked = graph;
+		for(Segment segment : segments) {
+			synchronized(segment) {
+				routes = segment.values().iterator();
+				while(routes.hasNext()) {
+					route = routes.next();
+					if(!check(route, graph, a, b, before, after)) {
+						routes.remove();
+						invalidated.increment();
+					}
+				}
+			}
+		}
+		if(through == null) {
+			return;
+		}
+		for(int u = 0; u < through.length(); u++) {
+			route = through.get(u);
+			// a path still in the cache was checked above, and one that
+			// missed an earlier update cannot be trusted
+			if(route != null && route.graph != graph &&
+					(route.graph != previous ||
+					!check(route, graph, a, b, before, after))) {
+				route.stale = true;
+				through.compareAndSet(u, route, null);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of queries answered by a cached path between the
+	 * same two cities
+	 *
+	 * @return the number of hits
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of queries answered by part of a longer cached path
+	 *
+	 * @return the number of sub-path hits
+	 */
+	public long subPathHits() {
+		return subPathHits.sum();
+	}
+
+	/**
+	 * Get the number of queries that had to search
+	 *
+	 * @return the number of misses
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of paths dropped because the graph was updated
+	 *
+	 * @return the number of invalidated paths
+	 */
+	public long invalidated() {
+		return invalidated.sum();
+	}
+
+	/**
+	 * Get the number of paths in the cache
+	 *
+	 * @return the number of cached paths
+	 */
+	public int size() {
+		int size = 0;
+		for(Segment segment : segments) {
+			synchronized(segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Forget every cached path
+	 */
+	public void clear() {
+		for(Segment segment : segments) {
+			synchronized(segment) {
+				segment.clear();
+			}
+		}
+		if(through != null) {
+			for(int u = 0; u < through.length(); u++) {
+				through.set(u, null);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		long h = hits(), p = subPathHits(), m = misses();
+		return String.format("%d hits, %d sub-path hits, %d misses " +
+				"(%.1f%% hit rate), %d paths, %d invalidated", h, p, m,
+				100.0 * (h + p) / Math.max(1, h + p + m), size(),
+				invalidated());
+	}
+
+	/*
+	 * private helper function, answer from a path through both cities
+	 */
+	private SearchResult fromSubPath(Route route, int s, int g, long key,
+			Graph graph) {
+		// a path not checked against the latest update may be wrong
+		if(route == null || route.stale || route.graph != graph) {
+			return null;
+		}
+		int[] path = route.path;
+		int i = -1, j = -1;
+		for(int k = 0; k < path.length && (i < 0 || j < 0); k++) {
+			if(path[k] == s) i = k;
+			if(path[k] == g) j = k;
+		}
+		if(i < 0 || j < 0) {
+			return null;
+		}
+		int from = Math.min(i, j), to = Math.max(i, j);
+		int[] part = new int[to - from + 1];
+		System.arraycopy(path, from, part, 0, part.length);
+		if(part[0] > part[part.length - 1]) {
+			reverse(part);
+		}
+		double length = 0;
+		for(int k = 0; k < part.length - 1; k++) {
+			length += graph.weight(part[k], part[k + 1]);
+		}
+		put(key, new Route(part, length, graph), graph);
+		return result(part, length, s > g);
+	}
+
+	/*
+	 * private helper function, cache a path unless the graph it was found
+	 * on has been updated since. Checking under the segment's lock means an
+	 * update either is seen here or drops the path after it is put.
+	 */
+	private boolean put(long key, Route route, Graph graph) {
+		Segment segment = segment(key);
+		synchronized(segment) {
+			if(america.graph() != graph) {
+				return false;
+			}
+			segment.put(key, route);
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private SearchResult result(int[] path, double length, 
+			boolean reversed) {
+		if(reversed) {
+			path = path.clone();
+			reverse(path);
+		}
+		return new SearchResult(TITLE, america.cities, path, length);
+	}
+
+	/*
+	 * private helper function, whether a path is still shortest after the
+	 * edge between a and b changed. A path that is not is marked stale, so
+	 * the cities on it stop using it, and one that is is marked as checked
+	 * against the new graph.
+	 */
+	private static boolean check(Route route, Graph graph, int a, int b,
+			double before, double after) {
+		if(route.stale || uses(route.path, a, b) || after < before &&
+				canShorten(route, graph, a, b, after)) {
+			route.stale = true;
+			return false;
+		}
+		route.graph = graph;
+		return true;
+	}
+
+	/*
+	 * private helper function, whether a path takes the edge between a
+	 * and b
+	 */
+	private static boolean uses(int[] path, int a, int b) {
+		for(int i = 0; i < path.length - 1; i++) {
+			if(path[i] == a && path[i + 1] == b ||
+					path[i] == b && path[i + 1] == a) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * private helper function, whether a path through an edge of the
+	 * given weight might be shorter than a cached path, judged by the
+	 * straight line distances to and from the edge
+	 */
+	private static boolean canShorten(Route route, Graph graph, int a, int b,
+			double weight) {
+		int s = route.path[0], g = route.path[route.path.length - 1];
+		double bound = weight + Math.min(
+				graph.estimate(s, a) + graph.estimate(b, g),
+				graph.estimate(s, b) + graph.estimate(a, g));
+		return bound < route.length;
+	}
+
+	/*
+	 * private helper function, the same key for both directions
+	 */
+	private static long key(int a, int b) {
+		return (long) Math.min(a, b) << 32 | Math.max(a, b);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private Segment segment(long key) {
+		long h = key * 0x9e3779b97f4a7c15L;
+		return segments[(int) (h >>> 32) & (segments.length - 1)];
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void reverse(int[] path) {
+		int t;
+		for(int i = 0, j = path.length - 1; i < j; i++, j--) {
+			t = path[i];
+			path[i] = path[j];
+			path[j] = t;
+		}
+	}
+
+	/**
+	 * Class Segment is one least recently used part of the cache, guarded
+	 * by its own lock
+	 */
+	private static class Segment extends LinkedHashMap<Long, Route> {
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Route> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	/**
+	 * Class Route is a cached shortest path, in increasing order of its end
+	 * points, its length, and the last graph it was checked against
+	 */
+	private static class Route {
+
+		private final int[] path;
+		private final double length;
+		private volatile Graph graph;
+		private volatile boolean stale;
+
+		private Route(int[] path, double length, Graph graph) {
+			this.path = path;
+			this.length = length;
+			this.graph = graph;
+		}
+	}
+}
@@ -0,0 +1,185 @@
+//******************************************************************************
+//
+// File:    RouteExecutor.java
+// Package: ---
+// Unit:    Class RouteExecutor
+//
+//******************************************************************************
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Class RouteExecutor answers many route queries at once by fanning them out
+ * across a thread pool over one shared {@link Merica}. Every worker borrows
+ * its own {@link Workspace}, and the results come back in the same order
+ * as the queries.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class RouteExecutor implements AutoCloseable {
+
+	// queries are split into this many chunks per thread to even out load
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	// private data members
+	private final Merica america;
+	private final ExecutorService pool;
+	private final int parallelism;
+	private final ConcurrentLinkedQueue<Workspace> workspaces =
+			new ConcurrentLinkedQueue<Workspace>();
+
+	/**
+	 * Construct an executor that runs queries on a fork/join pool
+	 *
+	 * @param america the graph to search
+	 * @param parallelism number of worker threads
+	 * @return the executor
+	 */
+	public static RouteExecutor forkJoin(Merica america, int parallelism) {
+		return new RouteExecutor(america, new ForkJoinPool(parallelism),
+				parallelism);
+	}
+
+	/**
+	 * Construct an executor that runs every chunk of queries on its own
+	 * virtual thread, for callers that block on I/O between queries. On a
+	 * JVM without virtual threads a cached platform thread pool is used.
+	 *
+	 * @param america the graph to search
+	 * @param parallelism sizes the split: each call to
+	 * 			{@link #execute(Collection)} divides its queries into at most
+	 * 			four times this many chunks, one virtual thread each. It does
+	 * 			not limit how many threads run at once.
+	 * @return the executor
+	 */
+	public static RouteExecutor virtualThreads(Merica america,
+			int parallelism) {
+		return new RouteExecutor(america, newVirtualThreadExecutor(),
+				parallelism);
+	}
+
+	/*
+	 * private constructor
+	 */
+	private RouteExecutor(Merica america, ExecutorService pool,
+			int parallelism) {
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive");
+		}
+		this.america = america;
+		this.pool = pool;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Answer every query
+	 *
+	 * @param queries the queries to answer
+	 * @return one result per query, in the same order as the queries
+	 */
+	public List<SearchResult> execute(Collection<Query> queries) {
+		final Query[] q = queries.toArray(new Query[queries.size()]);
+		final SearchResult[] results = new SearchResult[q.length];
+		int chunks = Math.min(q.length, parallelism * CHUNKS_PER_THREAD);
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>(chunks);
+		for(int c = 0; c < chunks; c++) {
+			final int from = (int) ((long) q.length * c / chunks);
+			final int to = (int) ((long) q.length * (c + 1) / chunks);
+			futures.add(pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					Workspace ws = borrow();
+					try {
+						for(int i = from; i < to; i++) {
+							results[i] = america.search(q[i].algorithm,
+									q[i].start, q[i].goal, ws);
+						}
+					} finally {
+						workspaces.offer(ws);
+					}
+				}
+			}));
+		}
+		try {
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Query failed", e.getCause());
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Shut down the thread pool
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/*
+	 * private helper function, a workspace made for an earlier version of
+	 * the graph is moved to the current one
+	 */
+	private Workspace borrow() {
+		Workspace ws = workspaces.poll();
+		if(ws == null) {
+			return america.newWorkspace();
+		}
+		ws.rebind(america.graph());
+		return ws;
+	}
+
+	/**
+	 * Create an executor that runs every task on its own virtual thread,
+	 * or on a cached platform thread pool on a JVM without them
+	 *
+	 * @return the executor
+	 */
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Class Query is one route to find
+	 *
+	 * @author Jimi Ford (jhf3617)
+	 */
+	public static class Query {
+
+		public final City start, goal;
+		public final Algorithm algorithm;
+
+		/**
+		 * construct a query
+		 * @param start start city
+		 * @param goal goal city
+		 * @param algorithm search to run
+		 */
+		public Query(City start, City goal, Algorithm algorithm) {
+			this.start = start;
+			this.goal = goal;
+			this.algorithm = algorithm;
+		}
+	}
+}
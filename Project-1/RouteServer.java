@@ -0,0 +1,384 @@
+//******************************************************************************
+//
+// File:    RouteServer.java
+// Package: ---
+// Unit:    Class RouteServer
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Class RouteServer keeps a {@link Merica} in memory and answers route
+ * queries over HTTP on the loopback interface, so a query pays neither JVM
+ * startup nor parsing the data files.
+ * <P>
+ * <TT>GET /route?from=A&amp;to=B&amp;algorithm=astar</TT> answers with the
+ * same text <TT>Search</TT> writes for one search; the algorithm is
+ * <TT>astar</TT> (the default), <TT>bfs</TT> or <TT>dfs</TT>.
+ * <TT>GET /stats</TT> reports how many queries were answered, turned away
+ * and timed out. Any other path is answered 404, and any other method 405.
+ * <P>
+ * Every request is handled on its own virtual thread, when the JVM has
+ * them, while the searches run on one platform thread per core. At most a
+ * fixed number of searches are admitted at once; a request beyond that is
+ * answered 503 right away instead of queueing, so latency stays steady
+ * under load. An admitted search may wait for a free thread, and the
+ * timeout counts only from when it starts running, so the wait is not
+ * held against it. A search that runs longer than the timeout is answered
+ * 504. It still holds its place until it finishes, since a search cannot
+ * be stopped part way.
+ * <P>
+ * An answer is written as headers and then a body. Unless the JVM's HTTP
+ * server is told to turn off Nagle's algorithm, by setting the
+ * {@link #NO_DELAY} system property to <TT>true</TT> before the first
+ * server is created, the body waits for the client's delayed ack and
+ * every answer takes about 40 ms longer. <TT>Search -serve</TT> sets it.
+ * The property applies to every HTTP server in the JVM, so the server
+ * does not set it itself.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class RouteServer implements AutoCloseable {
+
+	private static final int OK = 200;
+	private static final int BAD_REQUEST = 400;
+	private static final int NOT_FOUND = 404;
+	private static final int METHOD_NOT_ALLOWED = 405;
+	private static final int INTERNAL_ERROR = 500;
+	private static final int UNAVAILABLE = 503;
+	private static final int TIMEOUT = 504;
+
+	/**
+	 * system property that turns off Nagle's algorithm for every HTTP
+	 * server in the JVM
+	 */
+	public static final String NO_DELAY = "sun.net.httpserver.nodelay";
+
+	// private data members
+	private final Merica america;
+	private final RouteCache cache;
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final ExecutorService searches;
+	private final Semaphore admission;
+	private final int maxSearches;
+	private final long timeout;
+	private final LongAdder served = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder timedOut = new LongAdder();
+
+	/**
+	 * Construct a server on the loopback interface, not yet started
+	 *
+	 * @param america the graph to search
+	 * @param cache cache to answer a* queries from, or null to always
+	 * 			search
+	 * @param port port to listen on, 0 for any free port
+	 * @param maxSearches most searches admitted at once
+	 * @param timeout milliseconds a request waits for its search once the
+	 * 			search has started
+	 * @throws IOException if the port cannot be bound
+	 */
+	public RouteServer(Merica america, RouteCache cache, int port,
+			int maxSearches, long timeout) throws IOException {
+		if(maxSearches < 1) {
+			throw new IllegalArgumentException(
+					"maxSearches must be positive");
+		}
+		this.america = america;
+		this.cache = cache;
+		this.admission = new Semaphore(maxSearches);
+		this.maxSearches = maxSearches;
+		this.timeout = timeout;
+		this.server = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port), 0);
+		this.handlers = RouteExecutor.newVirtualThreadExecutor();
+		this.searches = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors());
+		server.setExecutor(handlers);
+		server.createContext("/route", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if(accept(exchange, "/route")) {
+					route(exchange);
+				}
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if(accept(exchange, "/stats")) {
+					send(exchange, OK, stats());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Start answering requests
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Get the port the server listens on
+	 *
+	 * @return the port
+	 */
+	public int port() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get the number of routes answered
+	 *
+	 * @return the number of routes
+	 */
+	public long served() {
+		return served.sum();
+	}
+
+	/**
+	 * Get the number of requests turned away because too many searches
+	 * were running
+	 *
+	 * @return the number of rejected requests
+	 */
+	public long rejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Get the number of requests whose search took too long
+	 *
+	 * @return the number of timed out requests
+	 */
+	public long timedOut() {
+		return timedOut.sum();
+	}
+
+	/**
+	 * Stop listening, and stop the threads once the searches running
+	 * have finished
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		handlers.shutdown();
+		searches.shutdown();
+	}
+
+	/*
+	 * private helper function, answer one route request
+	 */
+	private void route(HttpExchange exchange) throws IOException {
+		HashMap<String, String> params;
+		try {
+			params = params(exchange.getRequestURI().getRawQuery());
+		} catch (IllegalArgumentException e) {
+			send(exchange, BAD_REQUEST, "Bad query string: " +
+					e.getMessage() + "\n");
+			return;
+		}
+		String from = params.get("from"), to = params.get("to");
+		if(from == null || to == null) {
+			send(exchange, BAD_REQUEST, "Usage: /route?from=city&to=city" +
+					"[&algorithm=astar|bfs|dfs]\n");
+			return;
+		}
+		final Algorithm algorithm = algorithm(params.get("algorithm"));
+		if(algorithm == null) {
+			send(exchange, BAD_REQUEST, "No such algorithm: " +
+					params.get("algorithm") + "\n");
+			return;
+		}
+		final City start = america.getCity(from), goal = america.getCity(to);
+		if(start == null || goal == null) {
+			send(exchange, NOT_FOUND, "No such city: " +
+					(start == null ? from : to) + "\n");
+			return;
+		}
+		if(!admission.tryAcquire()) {
+			rejected.increment();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			send(exchange, UNAVAILABLE, "Too many searches, try again\n");
+			return;
+		}
+		final CountDownLatch started = new CountDownLatch(1);
+		Future<SearchResult> future;
+		try {
+			future = searches.submit(new Callable<SearchResult>() {
+				@Override
+				public SearchResult call() {
+					started.countDown();
+					try {
+						return search(algorithm, start, goal);
+					} finally {
+						admission.release();
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			admission.release();
+			send(exchange, UNAVAILABLE, "Shutting down\n");
+			return;
+		}
+		try {
+			// an admitted search always gets a thread, the wait is bounded
+			// by the searches admitted ahead of it
+			started.await();
+			SearchResult result = future.get(timeout, TimeUnit.MILLISECONDS);
+			served.increment();
+			send(exchange, OK, format(result));
+		} catch (TimeoutException e) {
+			timedOut.increment();
+			send(exchange, TIMEOUT, "Search took longer than " + timeout +
+					" ms\n");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			send(exchange, UNAVAILABLE, "Interrupted\n");
+		} catch (ExecutionException e) {
+			send(exchange, INTERNAL_ERROR, "Search failed: " +
+					e.getCause() + "\n");
+		}
+	}
+
+	/*
+	 * private helper function, whether a request is a GET of exactly the
+	 * path a handler serves, answering it if not. A context matches every
+	 * path it is a prefix of, so the handler checks the whole path.
+	 */
+	private static boolean accept(HttpExchange exchange, String path)
+			throws IOException {
+		if(!exchange.getRequestURI().getPath().equals(path)) {
+			send(exchange, NOT_FOUND, "No such page: " +
+					exchange.getRequestURI().getPath() + "\n");
+			return false;
+		}
+		if(!exchange.getRequestMethod().equals("GET")) {
+			exchange.getResponseHeaders().set("Allow", "GET");
+			send(exchange, METHOD_NOT_ALLOWED, "Only GET is supported\n");
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private SearchResult search(Algorithm algorithm, City start,
+			City goal) {
+		switch(algorithm) {
+		case BFS:
+			return america.bfs(start, goal);
+		case DFS:
+			return america.dfs(start, goal);
+		default:
+			return cache != null ? cache.aStar(start, goal) :
+					america.aStar(start, goal);
+		}
+	}
+
+	/*
+	 * private helper function, the text Search writes for one result
+	 */
+	private static String format(SearchResult result) throws IOException {
+		StringBuilder out = new StringBuilder();
+		out.append(result.title).append('\n');
+		result.writePath(out);
+		out.append("That took ").append(result.hops())
+			.append(" hops to find.\n");
+		out.append("Total distance = ").append(result.totalDistance())
+			.append(" miles.\n");
+		return out.toString();
+	}
+
+	/*
+	 * private helper function
+	 */
+	private String stats() {
+		return "served " + served() + "\nrejected " + rejected() +
+				"\ntimed out " + timedOut() + "\nsearching " +
+				(maxSearches - admission.availablePermits()) + " of " +
+				maxSearches + "\ngraph version " + america.version() +
+				(cache != null ? "\ncache " + cache : "") + "\n";
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static Algorithm algorithm(String name) {
+		if(name == null) {
+			return Algorithm.ASTAR;
+		}
+		try {
+			return Algorithm.valueOf(name.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * private helper function, decode a query string, throwing
+	 * IllegalArgumentException for a malformed escape
+	 */
+	private static HashMap<String, String> params(String query)
+			throws UnsupportedEncodingException {
+		HashMap<String, String> params = new HashMap<String, String>();
+		if(query == null) {
+			return params;
+		}
+		int eq;
+		for(String pair : query.split("&")) {
+			eq = pair.indexOf('=');
+			if(eq > 0) {
+				params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+						URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+			}
+		}
+		return params;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void send(HttpExchange exchange, int status, String body)
+			throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type",
+				"text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -6,12 +6,20 @@
 //
 //******************************************************************************
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
-import java.util.ArrayList;
+import java.io.PrintWriter;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 
@@ -21,6 +29,16 @@ import java.util.Scanner;
  * or
  * Usage: java Search - -
  * using "-" for console input
+ * or
+ * Usage: java Search -batch inputFile outputFile
+ * to answer every start/goal pair in the input file
+ * or
+ * Usage: java Search -serve [port]
+ * to keep the graph in memory and answer queries over HTTP on the loopback
+ * interface until stopped, see {@link RouteServer}
+ * <P>
+ * Either form may start with -geodesic to measure great-circle distances
+ * in miles instead of straight line distances in degrees
  * 
  * Shows the difference in search algorithms including,
  * BFS, DFS, and A*
@@ -34,19 +52,54 @@ public class Search {
 	private static final int OUT_INDEX = 1;
 	private static final String EDGE_DATA = "edge.dat";
 	private static final String CITY_DATA = "city.dat";
+	private static final String BATCH = "-batch";
+	private static final String GEODESIC = "-geodesic";
+	private static final String SERVE = "-serve";
+	private static final int DEFAULT_PORT = 8331;
+	private static final int CACHED_ROUTES = 10000;
+	private static final int MAX_SEARCHES = 64;
+	private static final long TIMEOUT_MILLIS = 2000;
+	private static final int BUFFER_SIZE = 1 << 16;
 	
 	/**
 	 * main method
 	 * @param args [0] = input file, [1] = output file
+	 * 			or [0] = "-batch", [1] = input file, [2] = output file,
+	 * 			or [0] = "-serve", [1] = optional port,
+	 * 			any of them after an optional "-geodesic"
 	 */
 	public static void main(String[] args) {
+		Metric metric = Metric.PLANAR;
+		if(args.length > 0 && args[0].equals(GEODESIC)) {
+			metric = Metric.GREAT_CIRCLE;
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+		if(args.length > 0 && args[0].equals(BATCH)) {
+			if(args.length < 3) {
+				error("Usage: java Search [-geodesic] -batch inputFile " +
+						"outputFile");
+			}
+			batch(args[IN_INDEX + 1], args[OUT_INDEX + 1], metric);
+			return;
+		}
+		if(args.length > 0 && args[0].equals(SERVE)) {
+			int port = DEFAULT_PORT;
+			if(args.length > 1) {
+				try {
+					port = Integer.parseInt(args[1]);
+				} catch (NumberFormatException e) {
+					error("Usage: java Search [-geodesic] -serve [port]");
+				}
+			}
+			serve(port, metric);
+			return;
+		}
 		if(args.length < 2) {
-			error("Usage: java Search inputFile outputFile");
+			error("Usage: java Search [-geodesic] inputFile outputFile");
 		}
-		ArrayList<City> cities = cities(CITY_DATA);
-		ArrayList<UndirectedEdge> edges = edges(EDGE_DATA, cities);
+		Merica america = merica(metric);
 		InputStream in = is(args[IN_INDEX]);
-		PrintStream out = os(args[OUT_INDEX]);
+		PrintWriter out = new PrintWriter(os(args[OUT_INDEX]));
 		Scanner scan = new Scanner(in);
 		String startCity, endCity;
 		City start, goal;
@@ -54,7 +107,6 @@ public class Search {
 		endCity = scan.nextLine();
 		scan.close();
 		try { in.close(); } catch (IOException e) { }
-		Merica america = new Merica(cities, edges);
 		if(!america.verifyCity(startCity)) {
 			error("No such city: " + startCity);
 		}
@@ -64,7 +116,128 @@ public class Search {
 		start = america.getCity(startCity);
 		goal = america.getCity(endCity);
 		
+		print(out, america, start, goal);
 		
+		out.close();
+	}
+	
+	/**
+	 * answer every start/goal pair in the input file, parsing the graph
+	 * only once and writing each result as soon as it is found
+	 * @param input input file, one city name per line, blank lines ignored
+	 * @param output output file
+	 * @param metric how distances are measured
+	 */
+	private static void batch(String input, String output, Metric metric) {
+		Merica america = merica(metric);
+		BufferedReader in = new BufferedReader(
+				new InputStreamReader(is(input)), BUFFER_SIZE);
+		PrintWriter out = new PrintWriter(new BufferedWriter(
+				new OutputStreamWriter(os(output)), BUFFER_SIZE));
+		long queries = 0, begin = System.nanoTime();
+		String startCity, endCity;
+		City start, goal;
+		try {
+			while((startCity = nextCity(in)) != null && 
+					(endCity = nextCity(in)) != null) {
+				start = america.getCity(startCity);
+				goal = america.getCity(endCity);
+				if(start == null || goal == null) {
+					System.err.println("No such city: " + 
+							(start == null ? startCity : endCity));
+					continue;
+				}
+				print(out, america, start, goal);
+				queries++;
+			}
+			in.close();
+		} catch (IOException e) {
+			error("Could not read: " + input);
+		}
+		out.close();
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		System.err.printf("Answered %d queries in %.3f seconds " + 
+				"(%.1f queries/sec)%n", queries, seconds, queries / seconds);
+	}
+	
+	/**
+	 * answer queries over HTTP until the process is stopped
+	 * @param port port to listen on
+	 * @param metric how distances are measured
+	 */
+	private static void serve(int port, Metric metric) {
+		// answers are written as headers then body; without this Nagle's
+		// algorithm holds the body until the client's delayed ack
+		if(System.getProperty(RouteServer.NO_DELAY) == null) {
+			System.setProperty(RouteServer.NO_DELAY, "true");
+		}
+		Merica america = merica(metric);
+		try {
+			final RouteServer server = new RouteServer(america,
+					new RouteCache(america, CACHED_ROUTES, true), port,
+					MAX_SEARCHES, TIMEOUT_MILLIS);
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					server.close();
+				}
+			});
+			server.start();
+			System.err.println("Serving routes on http://127.0.0.1:" +
+					server.port() + "/route?from=city&to=city");
+		} catch (IOException e) {
+			error("Could not listen on port " + port + ": " + 
+					e.getMessage());
+		}
+	}
+	
+	/*
+	 * private helper function, load the graph from its binary snapshot
+	 * when there is an up to date one using the same metric, otherwise
+	 * parse the text files on every core
+	 */
+	private static Merica merica(Metric metric) {
+		Path snapshot = Paths.get(Snapshot.DEFAULT_FILE);
+		try {
+			if(Snapshot.isFresh(snapshot, CITY_DATA, EDGE_DATA)) {
+				Merica america = Snapshot.read(snapshot);
+				if(america.graph().metric == metric) {
+					return america;
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Ignoring snapshot: " + e.getMessage());
+		}
+		try {
+			return ParallelGraphBuilder.load(CITY_DATA, EDGE_DATA, metric,
+					Runtime.getRuntime().availableProcessors());
+		} catch (NoSuchFileException e) {
+			error("File not found: " + e.getFile());
+		} catch (IOException e) {
+			error(e.getMessage());
+		}
+		return null;
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private static String nextCity(BufferedReader in) throws IOException {
+		String line;
+		while((line = in.readLine()) != null) {
+			line = line.trim();
+			if(!line.isEmpty()) {
+				return line;
+			}
+		}
+		return null;
+	}
+	
+	/*
+	 * private helper function
+	 */
+	private static void print(PrintWriter out, Merica america, 
+			City start, City goal) {
 		SearchResult[] results = { 
 			america.bfs(start, goal),
 			america.dfs(start, goal), 
@@ -74,7 +247,11 @@ public class Search {
 		for(SearchResult result : results) {
 			out.println();
 			out.println(result.title);
-			out.print(result.pathToString());
+			try {
+				result.writePath(out);
+			} catch (IOException e) {
+				// a PrintWriter keeps its errors instead of throwing them
+			}
 			out.println("That took " + result.hops() +
 					" hops to find.");
 			out.println("Total distance = " + result.totalDistance() +
@@ -82,9 +259,6 @@ public class Search {
 			
 			out.println();
 		}
-		
-		
-		out.close();
 	}
 	
 	/*
@@ -120,30 +294,6 @@ public class Search {
 		return null;
 	}
 	
-	/*
-	 * private helper function
-	 */
-	private static ArrayList<City> cities(String cityDat) {
-		try {
-			return DataParser.getCities(cityDat);
-		} catch (IOException e) {
-			error("File not found: city.dat");
-		}
-		return null;
-	}
-	
-	/*
-	 * private helper function
-	 */
-	private static ArrayList<UndirectedEdge> edges(String edgeDat, ArrayList<City> cities) {
-		try {
-			return DataParser.getSetEdges(EDGE_DATA, cities);
-		} catch (IOException e) {
-			error("File not found: edge.dat");
-		}
-		return null;
-	}
-	
 	/*
 	 * private helper function
 	 */
@@ -6,51 +6,115 @@
 //
 //******************************************************************************
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Data container for search results
+ *
+ * The path is kept as an array of city ids, and names are only looked up
+ * when the path is printed.
  * @author Jimi Ford (jhf3617)
  *
  */
 public class SearchResult {
 
 	public final String title;
-	private int hops;
-	private double distance;
-	private ArrayList<City> path;
-	
+	private final List<City> cities;
+	private final int[] path;
+	private final double distance;
+
 	/**
 	 * construct a search result
 	 * @param title title of result
 	 * @param path path taken in result
 	 */
 	public SearchResult(String title, ArrayList<City> path) {
+		this(title, path, calcDistance(path));
+	}
+
+	/**
+	 * construct a search result whose length is already known
+	 * @param title title of result
+	 * @param path path taken in result
+	 * @param distance total distance of the path
+	 */
+	public SearchResult(String title, ArrayList<City> path, double distance) {
 		this.title = title;
+		this.cities = path;
+		this.path = new int[path.size()];
+		for(int i = 0; i < this.path.length; i++) {
+			this.path[i] = i;
+		}
+		this.distance = distance;
+	}
+
+	/**
+	 * construct a search result from city ids
+	 * @param title title of result
+	 * @param cities every city, where <TT>cities.get(i).n == i</TT>
+	 * @param path ids of the cities on the path, not copied
+	 * @param distance total distance of the path
+	 */
+	public SearchResult(String title, List<City> cities, int[] path,
+			double distance) {
+		this.title = title;
+		this.cities = cities;
 		this.path = path;
-		this.hops = this.path.size() - 1;
-		this.distance = calcDistance(this.path);
+		this.distance = distance;
+	}
+
+	/**
+	 * read a path out of the parent pointers a search left, filling the
+	 * array from the back
+	 * @param tree parent pointers of the search
+	 * @param end last city on the path
+	 * @return ids of the cities on the path, from the start to <I>end</I>
+	 */
+	public static int[] path(PathTree tree, int end) {
+		int length = 0;
+		for(int u = end; u >= 0; u = tree.parent(u)) {
+			length++;
+		}
+		int[] path = new int[length];
+		for(int u = end; u >= 0; u = tree.parent(u)) {
+			path[--length] = u;
+		}
+		return path;
 	}
 
-	
 	/**
 	 * string representation of path taken
 	 * @return string representation of path taken
 	 */
 	public String pathToString() {
 		StringBuilder builder = new StringBuilder();
-		for(City city : path) {
-			builder.append(city.name + '\n');
+		try {
+			writePath(builder);
+		} catch (IOException e) {
+			// a StringBuilder does not throw
 		}
 		return builder.toString();
 	}
-	
+
+	/**
+	 * write the names of the cities on the path, one per line
+	 * @param out where to write them
+	 * @throws IOException if problem writing
+	 */
+	public void writePath(Appendable out) throws IOException {
+		for(int id : path) {
+			out.append(cities.get(id).name).append('\n');
+		}
+	}
+
 	/**
 	 * calculate total distance of path
 	 * @param path path to calculate
 	 * @return total distance
 	 */
-	private double calcDistance(ArrayList<City> path) {
+	private static double calcDistance(ArrayList<City> path) {
 		double distance = 0;
 		City a, b;
 		for(int i = 0; i < path.size() - 1; i++) {
@@ -60,15 +124,32 @@ public class SearchResult {
 		}
 		return distance;
 	}
-	
+
+	/**
+	 * get a city on the path
+	 * @param i position on the path, 0 for the start
+	 * @return the city
+	 */
+	public City city(int i) {
+		return cities.get(path[i]);
+	}
+
 	/**
 	 * how many hops in the path
 	 * @return number of hops
 	 */
 	public int hops() {
-		return hops;
+		return path.length - 1;
 	}
-	
+
+	/**
+	 * get the exact distance for this path
+	 * @return distance
+	 */
+	public double distance() {
+		return distance;
+	}
+
 	/**
 	 * get rounded distance for this path
 	 * @return
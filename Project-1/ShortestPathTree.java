@@ -0,0 +1,331 @@
+//******************************************************************************
+//
+// File:    ShortestPathTree.java
+// Package: ---
+// Unit:    Class ShortestPathTree
+//
+//******************************************************************************
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class ShortestPathTree holds the shortest path from one source to every
+ * city, as the parent and distance of each city in two arrays indexed by
+ * <TT>City.n</TT>. Once built it answers a route from the source to any
+ * city by following parent pointers, in time proportional to the length
+ * of the path.
+ * <P>
+ * A tree never changes, so it can be shared between threads. When the
+ * graph is updated, {@link #repair(Graph, int, int, double, double)} makes
+ * a new tree from this one, searching again only from the cities whose
+ * distance can change. A caller repairing many trees can pass the same
+ * {@link Repair} to each, so that a repair allocates nothing but the new
+ * tree.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class ShortestPathTree implements PathTree {
+
+	private static final String TITLE = "Shortest Path Tree Results: ";
+
+	/**
+	 * the city every path starts from
+	 */
+	public final int source;
+
+	// private data members
+	private final List<City> cities;
+	private final int[] parent;
+	private final double[] dist;
+
+	/**
+	 * Construct the tree a Dijkstra run left behind
+	 *
+	 * @param cities every city, where <TT>cities.get(i).n == i</TT>
+	 * @param source the source of the run
+	 * @param dijkstra the engine that ran from <I>source</I>
+	 */
+	public ShortestPathTree(List<City> cities, int source,
+			Dijkstra dijkstra) {
+		this.cities = cities;
+		this.source = source;
+		this.parent = new int[cities.size()];
+		this.dist = new double[cities.size()];
+		for(int u = 0; u < dist.length; u++) {
+			dist[u] = dijkstra.dist(u);
+			parent[u] = dist[u] < Double.POSITIVE_INFINITY ?
+					dijkstra.parent(u) : -1;
+		}
+	}
+
+	/*
+	 * private constructor, a copy to repair
+	 */
+	private ShortestPathTree(ShortestPathTree tree) {
+		this.cities = tree.cities;
+		this.source = tree.source;
+		this.parent = tree.parent.clone();
+		this.dist = tree.dist.clone();
+	}
+
+	/**
+	 * Get the previous city on the shortest path from the source
+	 *
+	 * @param u a city
+	 * @return the city before <I>u</I>, or -1 for the source and cities
+	 * 			that cannot be reached
+	 */
+	@Override
+	public int parent(int u) {
+		return parent[u];
+	}
+
+	/**
+	 * Get the length of the shortest path from the source
+	 *
+	 * @param u a city
+	 * @return the distance, infinite if <I>u</I> cannot be reached
+	 */
+	public double distance(int u) {
+		return dist[u];
+	}
+
+	/**
+	 * Whether there is a path from the source
+	 *
+	 * @param u a city
+	 * @return true if <I>u</I> can be reached
+	 */
+	public boolean reaches(int u) {
+		return dist[u] < Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Get the shortest path from the source
+	 *
+	 * @param u a city
+	 * @return ids of the cities on the path, only the source if <I>u</I>
+	 * 			cannot be reached
+	 */
+	public int[] path(int u) {
+		return reaches(u) ? SearchResult.path(this, u) : new int[] {source};
+	}
+
+	/**
+	 * shortest path from the source
+	 * @param goal
+	 * @return shortest path, or a path holding only the source if the goal
+	 * 			cannot be reached
+	 */
+	public SearchResult route(City goal) {
+		return new SearchResult(TITLE, cities, path(goal.n),
+				reaches(goal.n) ? dist[goal.n] : 0);
+	}
+
+	/**
+	 * Get the tree for a graph in which one edge has changed. Only the
+	 * cities whose distance can change are searched again: when the edge
+	 * got shorter, those it now leads to more quickly, and when it got
+	 * longer, those below it in this tree.
+	 *
+	 * @param graph the graph after the change
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param before weight of the edge before, infinity if it was added
+	 * @param after weight of the edge now, infinity if it was removed
+	 * @return the repaired tree, or this tree if it is still right
+	 */
+	public ShortestPathTree repair(Graph graph, int a, int b, double before,
+			double after) {
+		return repair(graph, a, b, before, after, null);
+	}
+
+	/**
+	 * Get the tree for a graph in which one edge has changed, searching in
+	 * scratch space kept between repairs
+	 *
+	 * @param graph the graph after the change
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param before weight of the edge before, infinity if it was added
+	 * @param after weight of the edge now, infinity if it was removed
+	 * @param scratch space for the search, or null to allocate it when a
+	 * 			repair is needed
+	 * @return the repaired tree, or this tree if it is still right
+	 */
+	public ShortestPathTree repair(Graph graph, int a, int b, double before,
+			double after, Repair scratch) {
+		if(after < before) {
+			if(dist[a] + after >= dist[b] && dist[b] + after >= dist[a]) {
+				return this;
+			}
+			ShortestPathTree tree = new ShortestPathTree(this);
+			tree.shorten(graph, a, b, after, Repair.fit(scratch, graph));
+			return tree;
+		}
+		int child = parent[b] == a ? b : parent[a] == b ? a : -1;
+		// a parallel edge may be just as short as the one that changed
+		if(child < 0 || dist[parent[child]] +
+				graph.weight(parent[child], child) == dist[child]) {
+			return this;
+		}
+		ShortestPathTree tree = new ShortestPathTree(this);
+		tree.lengthen(graph, child, Repair.fit(scratch, graph));
+		return tree;
+	}
+
+	/*
+	 * private helper function, carry a shorter distance over the edge on
+	 * to every city it improves
+	 */
+	private void shorten(Graph graph, int a, int b, double weight,
+			Repair scratch) {
+		IndexedHeap heap = scratch.heap;
+		relax(heap, a, b, dist[a] + weight);
+		relax(heap, b, a, dist[b] + weight);
+		int u, end;
+		while(!heap.isEmpty()) {
+			u = heap.poll();
+			end = graph.offsets[u + 1];
+			for(int i = graph.offsets[u]; i < end; i++) {
+				relax(heap, u, graph.neighbors[i], dist[u] + graph.weights[i]);
+			}
+		}
+	}
+
+	/*
+	 * private helper function, find new paths to every city below child,
+	 * starting from the cities around them whose paths did not change
+	 */
+	private void lengthen(Graph graph, int child, Repair scratch) {
+		int n = subtree(child, scratch);
+		IndexedHeap heap = scratch.heap;
+		int[] below = scratch.below, mark = scratch.mark;
+		int generation = scratch.generation, u, w, end;
+		for(int k = 0; k < n; k++) {
+			u = below[k];
+			dist[u] = Double.POSITIVE_INFINITY;
+			parent[u] = -1;
+		}
+		for(int k = 0; k < n; k++) {
+			u = below[k];
+			end = graph.offsets[u + 1];
+			for(int i = graph.offsets[u]; i < end; i++) {
+				w = graph.neighbors[i];
+				if(mark[w] != generation) {
+					relax(heap, w, u, dist[w] + graph.weights[i]);
+				}
+			}
+		}
+		while(!heap.isEmpty()) {
+			u = heap.poll();
+			end = graph.offsets[u + 1];
+			for(int i = graph.offsets[u]; i < end; i++) {
+				w = graph.neighbors[i];
+				if(mark[w] == generation) {
+					relax(heap, u, w, dist[u] + graph.weights[i]);
+				}
+			}
+		}
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void relax(IndexedHeap heap, int u, int w, double distance) {
+		if(distance < dist[w]) {
+			dist[w] = distance;
+			parent[w] = u;
+			heap.offer(w, distance);
+		}
+	}
+
+	/*
+	 * private helper function, mark child and every city whose path goes
+	 * through it, and list them at the front of the scratch space's below
+	 * array
+	 * @return the number of cities listed
+	 */
+	private int subtree(int child, Repair scratch) {
+		int v = parent.length;
+		int[] first = scratch.first, next = scratch.next;
+		int[] children = scratch.children, below = scratch.below;
+		int[] mark = scratch.mark;
+		if(++scratch.generation == 0) {
+			// the marks wrapped around, so old ones could look current
+			Arrays.fill(mark, 0);
+			scratch.generation = 1;
+		}
+		int generation = scratch.generation;
+		Arrays.fill(first, 0);
+		for(int u = 0; u < v; u++) {
+			if(parent[u] >= 0) {
+				first[parent[u] + 1]++;
+			}
+		}
+		for(int u = 0; u < v; u++) {
+			first[u + 1] += first[u];
+		}
+		System.arraycopy(first, 0, next, 0, v);
+		for(int u = 0; u < v; u++) {
+			if(parent[u] >= 0) {
+				children[next[parent[u]]++] = u;
+			}
+		}
+		// the list doubles as the stack, every city on it is visited once
+		int n = 0, u;
+		mark[child] = generation;
+		below[n++] = child;
+		for(int k = 0; k < n; k++) {
+			u = below[k];
+			for(int c = first[u]; c < first[u + 1]; c++) {
+				mark[children[c]] = generation;
+				below[n++] = children[c];
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Class Repair is the scratch space of a tree repair. It is kept
+	 * between repairs so that repairing a tree allocates nothing but the
+	 * new tree, and a city is below the changed edge when its mark holds
+	 * the current generation, so nothing is cleared between them.
+	 * <P>
+	 * A Repair must only be used by one thread at a time.
+	 */
+	public static class Repair {
+
+		private final int[] rank;
+		private final IndexedHeap heap;
+		private final int[] first, next, children, below, mark;
+		private int generation;
+
+		/**
+		 * Construct the scratch space for repairing trees of a graph
+		 *
+		 * @param graph any version of the graph
+		 */
+		public Repair(Graph graph) {
+			this.rank = graph.rank;
+			this.heap = new IndexedHeap(graph.v, graph.rank);
+			this.first = new int[graph.v + 1];
+			this.next = new int[graph.v + 1];
+			this.children = new int[graph.v];
+			this.below = new int[graph.v];
+			this.mark = new int[graph.v];
+		}
+
+		/*
+		 * private helper function, the scratch space if it was made for a
+		 * version of the graph, otherwise new space
+		 */
+		private static Repair fit(Repair scratch, Graph graph) {
+			// every version made by an update shares the vertices' ranks
+			return scratch != null && scratch.rank == graph.rank ? scratch :
+					new Repair(graph);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+//******************************************************************************
+//
+// File:    Snapshot.java
+// Package: ---
+// Unit:    Class Snapshot
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Class Snapshot saves a parsed {@link Merica} as a binary file that can be
+ * memory-mapped and handed back to Merica without parsing any text.
+ * <P>
+ * File layout, big-endian: magic, version, {@link Metric} ordinal, number
+ * of cities <I>v</I>, number of adjacency slots <I>m</I>, string pool
+ * length <I>p</I> (ints);
+ * name offsets and state offsets into the pool (<I>v</I> + 1 ints each);
+ * the UTF-8 string pool (<I>p</I> bytes); latitudes, longitudes
+ * (<I>v</I> doubles each); name ranks (<I>v</I> ints); CSR row offsets
+ * (<I>v</I> + 1 ints); neighbors and edge ids (<I>m</I> ints each); and
+ * weights (<I>m</I> doubles).
+ * <P>
+ * Usage: java Snapshot [-geodesic] [snapshotFile]
+ * <BR>writes the snapshot of city.dat and edge.dat, by default to
+ * merica.snap, which {@link Search} then loads instead of the text files.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Snapshot {
+
+	/**
+	 * default snapshot file name
+	 */
+	public static final String DEFAULT_FILE = "merica.snap";
+
+	private static final int MAGIC = 0x4d534e50; // "MSNP"
+	private static final int VERSION = 3;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Write the snapshot of a graph
+	 *
+	 * @param america the graph
+	 * @param file the file to write
+	 * @throws IOException if problem writing the file
+	 */
+	public static void write(Merica america, Path file) throws IOException {
+		Graph graph = america.graph();
+		int v = graph.v, m = graph.neighbors.length;
+		byte[][] names = new byte[v][], states = new byte[v][];
+		int[] nameOffsets = new int[v + 1], stateOffsets = new int[v + 1];
+		int pool = 0;
+		for(int i = 0; i < v; i++) {
+			names[i] = america.cities.get(i).name.getBytes(UTF8);
+			nameOffsets[i] = pool;
+			pool += names[i].length;
+		}
+		nameOffsets[v] = pool;
+		for(int i = 0; i < v; i++) {
+			states[i] = america.cities.get(i).state.getBytes(UTF8);
+			stateOffsets[i] = pool;
+			pool += states[i].length;
+		}
+		stateOffsets[v] = pool;
+		long size = 24L + 8L * (v + 1) + pool + 16L * v + 4L * v +
+				4L * (v + 1) + 16L * m;
+		if(size > Integer.MAX_VALUE) {
+			throw new IOException("Graph too large for a snapshot");
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer out = channel.map(MapMode.READ_WRITE, 0, size);
+			out.putInt(MAGIC).putInt(VERSION).putInt(graph.metric.ordinal())
+				.putInt(v).putInt(m).putInt(pool);
+			out.asIntBuffer().put(nameOffsets).put(stateOffsets);
+			out.position(out.position() + 8 * (v + 1));
+			for(int i = 0; i < v; i++) out.put(names[i]);
+			for(int i = 0; i < v; i++) out.put(states[i]);
+			out.asDoubleBuffer().put(graph.lat).put(graph.lon);
+			out.position(out.position() + 16 * v);
+			out.asIntBuffer().put(graph.rank).put(graph.offsets)
+				.put(graph.neighbors).put(graph.edgeIds);
+			out.position(out.position() + 4 * (v + v + 1 + m + m));
+			out.asDoubleBuffer().put(graph.weights);
+			out.force();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Memory-map a snapshot and build a Merica from it. The arrays are
+	 * bulk-copied out of the mapping; no text is parsed. The counts in the
+	 * header must match the file's length and the offsets must stay in
+	 * range, so a truncated or damaged file is reported rather than
+	 * failing later.
+	 *
+	 * @param file the snapshot file
+	 * @return the graph
+	 * @throws IOException if problem reading the file, or if it is not a
+	 * 			whole, valid snapshot
+	 */
+	public static Merica read(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			if(channel.size() < 24) {
+				throw new IOException("Not a graph snapshot: " + file);
+			}
+			MappedByteBuffer in = channel.map(MapMode.READ_ONLY, 0,
+					channel.size());
+			if(in.getInt() != MAGIC || in.getInt() != VERSION) {
+				throw new IOException("Not a graph snapshot: " + file);
+			}
+			int metric = in.getInt();
+			if(metric < 0 || metric >= Metric.values().length) {
+				throw new IOException("Unknown metric in snapshot: " + file);
+			}
+			int v = in.getInt(), m = in.getInt(), pool = in.getInt();
+			if(v < 0 || m < 0 || pool < 0 || channel.size() != 24L +
+					8L * (v + 1L) + pool + 16L * v + 4L * v + 4L * (v + 1L) +
+					16L * m) {
+				throw new IOException("Truncated or damaged snapshot: " +
+						file);
+			}
+			int[] nameOffsets = ints(in, v + 1), stateOffsets = ints(in, v + 1);
+			byte[] strings = new byte[pool];
+			in.get(strings);
+			double[] lat = doubles(in, v), lon = doubles(in, v);
+			int[] rank = ints(in, v), offsets = ints(in, v + 1);
+			int[] neighbors = ints(in, m), edgeIds = ints(in, m);
+			double[] weights = doubles(in, m);
+			if(!increasing(nameOffsets, 0, pool) ||
+					!increasing(stateOffsets, 0, pool) ||
+					!increasing(offsets, 0, m) || offsets[0] != 0 ||
+					offsets[v] != m || !within(neighbors, v) ||
+					!within(edgeIds, Integer.MAX_VALUE)) {
+				throw new IOException("Damaged snapshot: " + file);
+			}
+			ArrayList<City> cities = new ArrayList<City>(v);
+			for(int i = 0; i < v; i++) {
+				cities.add(new City(i,
+					string(strings, nameOffsets[i], nameOffsets[i + 1]),
+					string(strings, stateOffsets[i], stateOffsets[i + 1]),
+					lat[i], lon[i]));
+			}
+			return new Merica(cities, new Graph(Metric.values()[metric],
+					offsets, neighbors, weights, edgeIds, lat, lon, rank));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Is there a snapshot at least as new as the text files it came from?
+	 *
+	 * @param file the snapshot file
+	 * @param cityDat filename of city data
+	 * @param edgeDat filename of edge data
+	 * @return true if the snapshot can be used in place of the text files
+	 * @throws IOException if problem reading the file times
+	 */
+	public static boolean isFresh(Path file, String cityDat, String edgeDat)
+			throws IOException {
+		if(!Files.exists(file)) {
+			return false;
+		}
+		Path cities = Paths.get(cityDat), edges = Paths.get(edgeDat);
+		return (!Files.exists(cities) || Files.getLastModifiedTime(file)
+				.compareTo(Files.getLastModifiedTime(cities)) >= 0) &&
+			(!Files.exists(edges) || Files.getLastModifiedTime(file)
+				.compareTo(Files.getLastModifiedTime(edges)) >= 0);
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static int[] ints(ByteBuffer in, int n) {
+		int[] result = new int[n];
+		in.asIntBuffer().get(result);
+		in.position(in.position() + 4 * n);
+		return result;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static double[] doubles(ByteBuffer in, int n) {
+		double[] result = new double[n];
+		in.asDoubleBuffer().get(result);
+		in.position(in.position() + 8 * n);
+		return result;
+	}
+
+	/*
+	 * private helper function, whether values never decrease and stay
+	 * between low and high
+	 */
+	private static boolean increasing(int[] values, int low, int high) {
+		int last = low;
+		for(int x : values) {
+			if(x < last || x > high) {
+				return false;
+			}
+			last = x;
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function, whether every value is from 0 up to, but
+	 * not including, limit
+	 */
+	private static boolean within(int[] values, int limit) {
+		for(int x : values) {
+			if(x < 0 || x >= limit) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static String string(byte[] pool, int from, int to) {
+		return new String(pool, from, to - from, UTF8);
+	}
+
+	/**
+	 * main method
+	 * @param args [0] = "-geodesic" for great-circle distances, optional,
+	 * 			then the snapshot file, merica.snap if left out
+	 * @throws IOException if problem reading the data or writing the file
+	 */
+	public static void main(String[] args) throws IOException {
+		int first = 0;
+		Metric metric = Metric.PLANAR;
+		if(args.length > 0 && args[0].equals("-geodesic")) {
+			metric = Metric.GREAT_CIRCLE;
+			first = 1;
+		}
+		Merica america = DataParser.load("city.dat", "edge.dat", metric);
+		write(america, Paths.get(args.length > first ? args[first] :
+			DEFAULT_FILE));
+	}
+}
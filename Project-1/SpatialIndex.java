@@ -0,0 +1,456 @@
+//******************************************************************************
+//
+// File:    SpatialIndex.java
+// Package: ---
+// Unit:    Class SpatialIndex
+//
+//******************************************************************************
+
+import java.util.Arrays;
+
+/**
+ * Class SpatialIndex finds the cities closest to a position, and the
+ * cities inside a latitude/longitude box, without looking at every city.
+ * <P>
+ * It is a k-d tree kept implicitly in arrays: the city in the middle of a
+ * range splits it, everything before it is on the low side of its
+ * coordinate along the range's axis and everything after it on the high
+ * side, and the axes take turns from one level to the next. Coordinates
+ * are copied into one array in tree order, so a search reads memory
+ * roughly in sequence.
+ * <P>
+ * Closeness follows the graph's {@link Metric}. For the planar metric the
+ * tree splits on latitude and longitude. For the great-circle metric it
+ * splits on the unit vectors the graph keeps, because the straight line
+ * between two unit vectors grows with the arc between them, so the
+ * closest by one is the closest by the other. Cities at exactly the same
+ * distance are ordered by id.
+ * <P>
+ * A SpatialIndex never changes after it is built and is safe for any
+ * number of threads at once. It keeps copies of the positions it needs
+ * rather than the graph, so it does not hold on to a version of the graph
+ * that updates have replaced.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class SpatialIndex {
+
+	// ranges this small are scanned instead of split
+	private static final int LEAF = 8;
+
+	// private data members, positions are in tree order
+	private final int dims;
+	private final int[] ids;
+	private final double[] coords;
+	private final double[] latLon;
+
+	/**
+	 * Build the index of every vertex of a graph
+	 *
+	 * @param graph the graph whose positions are indexed
+	 */
+	public SpatialIndex(Graph graph) {
+		double[][] axes = graph.metric == Metric.GREAT_CIRCLE ?
+				new double[][] {graph.x, graph.y, graph.z} :
+				new double[][] {graph.lat, graph.lon};
+		this.dims = axes.length;
+		this.ids = new int[graph.v];
+		for(int u = 0; u < ids.length; u++) {
+			ids[u] = u;
+		}
+		build(axes, 0, ids.length, 0);
+		this.coords = new double[ids.length * dims];
+		for(int i = 0; i < ids.length; i++) {
+			for(int a = 0; a < dims; a++) {
+				coords[i * dims + a] = axes[a][ids[i]];
+			}
+		}
+		// the planar coordinates already are latitude and longitude
+		if(dims == 2) {
+			this.latLon = coords;
+		} else {
+			this.latLon = new double[ids.length * 2];
+			for(int i = 0; i < ids.length; i++) {
+				latLon[2 * i] = graph.lat[ids[i]];
+				latLon[2 * i + 1] = graph.lon[ids[i]];
+			}
+		}
+	}
+
+	/**
+	 * Get the number of indexed cities
+	 *
+	 * @return the number of cities
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 * Find the city closest to a position
+	 *
+	 * @param lat latitude
+	 * @param lon longitude
+	 * @return id of the closest city, or -1 if there are no cities
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 */
+	public int nearest(double lat, double lon) {
+		double[] q = point(lat, lon);
+		if(ids.length == 0) {
+			return -1;
+		}
+		// start from a real city, so there is always one to return
+		int[] at = {0};
+		nearest(0, ids.length, 0, q, distance(0, q), at);
+		return ids[at[0]];
+	}
+
+	/**
+	 * Find the cities closest to a position
+	 *
+	 * @param lat latitude
+	 * @param lon longitude
+	 * @param k how many cities to find
+	 * @return ids of the <I>k</I> closest cities, or of every city if there
+	 * 			are fewer, closest first
+	 * @throws IllegalArgumentException if a coordinate is not finite
+	 */
+	public int[] nearest(double lat, double lon, int k) {
+		if(k < 0) {
+			throw new IllegalArgumentException("k must not be negative");
+		}
+		Nearest search = new Nearest(point(lat, lon),
+				Math.min(k, ids.length));
+		search.search(0, ids.length, 0);
+		return search.sorted();
+	}
+
+	/**
+	 * Find the cities inside a box, edges included
+	 *
+	 * @param minLat southern edge
+	 * @param minLon western edge
+	 * @param maxLat northern edge
+	 * @param maxLon eastern edge
+	 * @return ids of the cities in the box, in no particular order
+	 * @throws IllegalArgumentException if an edge is not finite
+	 */
+	public int[] within(double minLat, double minLon, double maxLat,
+			double maxLon) {
+		checkFinite(minLat, minLon);
+		checkFinite(maxLat, maxLon);
+		double[] low, high;
+		if(dims == 2) {
+			low = new double[] {minLat, minLon};
+			high = new double[] {maxLat, maxLon};
+		} else {
+			// only z follows latitude alone; x and y cannot prune
+			double inf = Double.POSITIVE_INFINITY;
+			low = new double[] {-inf, -inf,
+					Math.sin(Math.toRadians(minLat)) - 1e-12};
+			high = new double[] {inf, inf,
+					Math.sin(Math.toRadians(maxLat)) + 1e-12};
+		}
+		int[] found = new int[16];
+		int count = 0;
+		int[] stack = new int[3 * 128];
+		int top = 0, lo, hi, axis, m, next;
+		double lat, lon;
+		stack[top++] = 0;
+		stack[top++] = ids.length;
+		stack[top++] = 0;
+		while(top > 0) {
+			axis = stack[--top];
+			hi = stack[--top];
+			lo = stack[--top];
+			if(lo >= hi) {
+				continue;
+			}
+			m = (lo + hi) >>> 1;
+			lat = latLon[2 * m];
+			lon = latLon[2 * m + 1];
+			if(lat >= minLat && lat <= maxLat && lon >= minLon &&
+					lon <= maxLon) {
+				if(count == found.length) {
+					found = Arrays.copyOf(found, count * 2);
+				}
+				found[count++] = ids[m];
+			}
+			next = axis + 1 == dims ? 0 : axis + 1;
+			if(coords[m * dims + axis] >= low[axis]) {
+				stack[top++] = lo;
+				stack[top++] = m;
+				stack[top++] = next;
+			}
+			if(coords[m * dims + axis] <= high[axis]) {
+				stack[top++] = m + 1;
+				stack[top++] = hi;
+				stack[top++] = next;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/*
+	 * private helper function, search a range for a position closer than
+	 * best, returning the new best and leaving its position in at[0]. Only
+	 * positions are compared while searching, so ids are read just for
+	 * ties.
+	 */
+	private double nearest(int lo, int hi, int axis, double[] q, double best,
+			int[] at) {
+		if(hi - lo <= LEAF) {
+			for(int i = lo; i < hi; i++) {
+				best = closer(i, q, best, at);
+			}
+			return best;
+		}
+		int m = (lo + hi) >>> 1;
+		best = closer(m, q, best, at);
+		int next = axis + 1 == dims ? 0 : axis + 1;
+		double diff = q[axis] - coords[m * dims + axis];
+		if(diff < 0) {
+			best = nearest(lo, m, next, q, best, at);
+			if(diff * diff <= best) {
+				best = nearest(m + 1, hi, next, q, best, at);
+			}
+		} else {
+			best = nearest(m + 1, hi, next, q, best, at);
+			if(diff * diff <= best) {
+				best = nearest(lo, m, next, q, best, at);
+			}
+		}
+		return best;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private double closer(int i, double[] q, double best, int[] at) {
+		double d = distance(i, q);
+		if(d < best || d == best && ids[i] < ids[at[0]]) {
+			at[0] = i;
+			return d;
+		}
+		return best;
+	}
+
+	/*
+	 * private helper function, squared distance from the city at position
+	 * i to a point in the tree's coordinates
+	 */
+	private double distance(int i, double[] q) {
+		double d = 0, t;
+		for(int a = 0, c = i * dims; a < dims; a++, c++) {
+			t = q[a] - coords[c];
+			d += t * t;
+		}
+		return d;
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void checkFinite(double lat, double lon) {
+		if(Double.isNaN(lat) || Double.isInfinite(lat) ||
+				Double.isNaN(lon) || Double.isInfinite(lon)) {
+			throw new IllegalArgumentException("Position must be finite: " +
+					lat + ", " + lon);
+		}
+	}
+
+	/*
+	 * private helper function, a position in the tree's coordinates
+	 */
+	private double[] point(double lat, double lon) {
+		checkFinite(lat, lon);
+		if(dims == 2) {
+			return new double[] {lat, lon};
+		}
+		double phi = Math.toRadians(lat), lambda = Math.toRadians(lon);
+		return new double[] {Math.cos(phi) * Math.cos(lambda),
+				Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+	}
+
+	/*
+	 * private helper function, put the median of a range along an axis in
+	 * the middle with the smaller ones before it, then build both sides
+	 */
+	private void build(double[][] axes, int lo, int hi, int axis) {
+		while(hi - lo > 1) {
+			int m = (lo + hi) >>> 1;
+			select(axes[axis], lo, hi, m);
+			axis = axis + 1 == dims ? 0 : axis + 1;
+			build(axes, lo, m, axis);
+			lo = m + 1;
+		}
+	}
+
+	/*
+	 * private helper function, quickselect the k-th smallest of a range
+	 */
+	private void select(double[] a, int lo, int hi, int k) {
+		int i, j, t;
+		double pivot;
+		while(hi - lo > 1) {
+			i = lo;
+			j = hi - 1;
+			pivot = a[ids[(lo + hi) >>> 1]];
+			while(i <= j) {
+				while(a[ids[i]] < pivot) i++;
+				while(a[ids[j]] > pivot) j--;
+				if(i <= j) {
+					t = ids[i];
+					ids[i] = ids[j];
+					ids[j] = t;
+					i++;
+					j--;
+				}
+			}
+			if(k <= j) {
+				hi = j + 1;
+			} else if(k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Class Nearest is one search for the closest cities, keeping the
+	 * best found so far in a max-heap on distance
+	 */
+	private class Nearest {
+
+		private final double[] q;
+		private final int k;
+		private final int[] found;
+		private final double[] dist;
+		private int count;
+
+		private Nearest(double[] q, int k) {
+			this.q = q;
+			this.k = k;
+			this.found = new int[k];
+			this.dist = new double[k];
+		}
+
+		/*
+		 * private helper function, the squared distance a city must beat
+		 */
+		private double bound() {
+			return count < k ? Double.POSITIVE_INFINITY : dist[0];
+		}
+
+		/*
+		 * private helper function
+		 */
+		private void search(int lo, int hi, int axis) {
+			if(k == 0) {
+				return;
+			}
+			if(hi - lo <= LEAF) {
+				for(int i = lo; i < hi; i++) {
+					offer(i);
+				}
+				return;
+			}
+			int m = (lo + hi) >>> 1;
+			offer(m);
+			int next = axis + 1 == dims ? 0 : axis + 1;
+			double diff = q[axis] - coords[m * dims + axis];
+			if(diff < 0) {
+				search(lo, m, next);
+				if(diff * diff <= bound()) {
+					search(m + 1, hi, next);
+				}
+			} else {
+				search(m + 1, hi, next);
+				if(diff * diff <= bound()) {
+					search(lo, m, next);
+				}
+			}
+		}
+
+		/*
+		 * private helper function, consider the city at position i
+		 */
+		private void offer(int i) {
+			double d = distance(i, q);
+			int u = ids[i];
+			if(count < k) {
+				found[count] = u;
+				dist[count] = d;
+				up(count++);
+			} else if(d < dist[0] || d == dist[0] && u < found[0]) {
+				found[0] = u;
+				dist[0] = d;
+				down(0);
+			}
+		}
+
+		/*
+		 * private helper function, whether the entry at i is farther than
+		 * the one at j
+		 */
+		private boolean farther(int i, int j) {
+			return dist[i] > dist[j] || dist[i] == dist[j] &&
+					found[i] > found[j];
+		}
+
+		/*
+		 * private helper function
+		 */
+		private void up(int i) {
+			int p;
+			while(i > 0 && farther(i, p = (i - 1) >>> 1)) {
+				swap(i, p);
+				i = p;
+			}
+		}
+
+		/*
+		 * private helper function
+		 */
+		private void down(int i) {
+			int c;
+			while((c = 2 * i + 1) < count) {
+				if(c + 1 < count && farther(c + 1, c)) {
+					c++;
+				}
+				if(!farther(c, i)) {
+					return;
+				}
+				swap(i, c);
+				i = c;
+			}
+		}
+
+		/*
+		 * private helper function
+		 */
+		private void swap(int i, int j) {
+			int u = found[i];
+			found[i] = found[j];
+			found[j] = u;
+			double d = dist[i];
+			dist[i] = dist[j];
+			dist[j] = d;
+		}
+
+		/*
+		 * private helper function, empty the heap, closest first
+		 */
+		private int[] sorted() {
+			int[] result = new int[count];
+			while(count > 0) {
+				result[count - 1] = found[0];
+				swap(0, --count);
+				down(0);
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,293 @@
+//******************************************************************************
+//
+// File:    Tokenizer.java
+// Package: ---
+// Unit:    Class Tokenizer
+//
+//******************************************************************************
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class Tokenizer reads a whitespace separated text file one line at a time
+ * straight out of a memory mapping. Only a window of the file is mapped at
+ * once, so memory use does not depend on the file size, and tokens are
+ * parsed from the mapped bytes without creating Strings unless asked to.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Tokenizer implements Closeable {
+
+	// bytes of the file mapped at once, the longest line that can be read
+	private static final int WINDOW = 1 << 28;
+	// tokens after this many on a line are ignored
+	private static final int MAX_TOKENS = 8;
+	// the most significant digits a double can have and still be parsed
+	// exactly with one multiplication or division by a power of ten
+	private static final int MAX_DIGITS = 15;
+	private static final double[] POWERS = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	// private data members
+	private final Path file;
+	private final FileChannel channel;
+	private final long size;
+	private MappedByteBuffer buf;
+	private long base;
+	private int cursor;
+	private int line;
+	private final int[] starts = new int[MAX_TOKENS];
+	private final int[] ends = new int[MAX_TOKENS];
+	private int tokens;
+
+	/**
+	 * Open a file for reading
+	 *
+	 * @param file the file
+	 * @throws IOException if problem opening the file
+	 */
+	public Tokenizer(Path file) throws IOException {
+		this(file, 0, -1);
+	}
+
+	/**
+	 * Open part of a file for reading
+	 *
+	 * @param file the file
+	 * @param from offset of the first byte to read, the start of a line
+	 * @param to offset after the last byte to read, or -1 for the end of
+	 * 			the file
+	 * @throws IOException if problem opening the file
+	 */
+	public Tokenizer(Path file, long from, long to) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.size = to < 0 ? channel.size() : Math.min(to, channel.size());
+		map(Math.min(from, size));
+	}
+
+	/**
+	 * Split a file into pieces that each start at the beginning of a line
+	 *
+	 * @param file the file
+	 * @param pieces the number of pieces wanted
+	 * @return offsets of the piece boundaries, from 0 to the file size;
+	 * 			pieces may be empty
+	 * @throws IOException if problem reading the file
+	 */
+	public static long[] split(Path file, int pieces) throws IOException {
+		long[] bounds = new long[pieces + 1];
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size(), position;
+			ByteBuffer scan = ByteBuffer.allocate(4096);
+			bounds[pieces] = size;
+			for(int i = 1; i < pieces; i++) {
+				position = Math.max(size * i / pieces, bounds[i - 1]);
+				// move forward to just past the next newline
+				search:
+				while(position < size) {
+					scan.clear();
+					int read = channel.read(scan, position);
+					for(int k = 0; k < read; k++) {
+						if(scan.get(k) == '\n') {
+							position += k + 1;
+							break search;
+						}
+					}
+					position += Math.max(read, 0);
+				}
+				bounds[i] = Math.min(position, size);
+			}
+		} finally {
+			channel.close();
+		}
+		return bounds;
+	}
+
+	/**
+	 * Read the next line
+	 *
+	 * @return false if there are no more lines
+	 * @throws IOException if problem reading the file, or if a line is
+	 * 			longer than the mapping window
+	 */
+	public boolean nextLine() throws IOException {
+		if(base + cursor >= size) {
+			return false;
+		}
+		int end = lineEnd(cursor);
+		if(end == buf.limit() && base + end < size) {
+			map(base + cursor);
+			end = lineEnd(0);
+			if(end == buf.limit() && base + end < size) {
+				throw new IOException(file + ":" + (line + 1) +
+						": line too long");
+			}
+		}
+		line++;
+		tokens = 0;
+		int i = cursor;
+		while(i < end) {
+			while(i < end && isSpace(buf.get(i))) i++;
+			if(i == end) break;
+			int start = i;
+			while(i < end && !isSpace(buf.get(i))) i++;
+			if(tokens < MAX_TOKENS) {
+				starts[tokens] = start;
+				ends[tokens] = i;
+				tokens++;
+			}
+		}
+		cursor = end < buf.limit() ? end + 1 : end;
+		return true;
+	}
+
+	/**
+	 * Get the number of tokens on the current line
+	 *
+	 * @return the number of tokens
+	 */
+	public int tokens() {
+		return tokens;
+	}
+
+	/**
+	 * Get the number of the current line, starting at 1
+	 *
+	 * @return the line number
+	 */
+	public int line() {
+		return line;
+	}
+
+	/**
+	 * Get a token as a String
+	 *
+	 * @param i which token on the line, starting at 0
+	 * @return the token
+	 */
+	public String string(int i) {
+		byte[] bytes = new byte[ends[i] - starts[i]];
+		for(int k = 0; k < bytes.length; k++) {
+			bytes[k] = buf.get(starts[i] + k);
+		}
+		return new String(bytes, Charset.defaultCharset());
+	}
+
+	/**
+	 * Parse a token as a double, giving exactly the value
+	 * {@link Double#parseDouble(String)} would
+	 *
+	 * @param i which token on the line, starting at 0
+	 * @return the value
+	 * @throws NumberFormatException if the token is not a number
+	 */
+	public double parseDouble(int i) {
+		int k = starts[i], end = ends[i], digits = 0, exponent = 0;
+		long mantissa = 0;
+		boolean negative = false, any = false;
+		byte b = buf.get(k);
+		if(b == '-' || b == '+') {
+			negative = b == '-';
+			k++;
+		}
+		for(; k < end && isDigit(b = buf.get(k)); k++, any = true) {
+			mantissa = mantissa * 10 + (b - '0');
+			if(mantissa != 0) digits++;
+		}
+		if(k < end && buf.get(k) == '.') {
+			for(k++; k < end && isDigit(b = buf.get(k)); k++, any = true) {
+				mantissa = mantissa * 10 + (b - '0');
+				if(mantissa != 0) digits++;
+				exponent--;
+			}
+		}
+		if(any && k < end && (buf.get(k) == 'e' || buf.get(k) == 'E')) {
+			int e = 0;
+			boolean negativeE = false;
+			k++;
+			if(k < end && (buf.get(k) == '-' || buf.get(k) == '+')) {
+				negativeE = buf.get(k++) == '-';
+			}
+			any = k < end;
+			for(; k < end && isDigit(b = buf.get(k)) && e < 1000; k++) {
+				e = e * 10 + (b - '0');
+			}
+			exponent += negativeE ? -e : e;
+		}
+		if(!any || k != end || digits > MAX_DIGITS ||
+				exponent < -22 || exponent > 22) {
+			return Double.parseDouble(string(i));
+		}
+		double value = exponent < 0 ? mantissa / POWERS[-exponent] :
+			mantissa * POWERS[exponent];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Look a token up in a name index without creating a String
+	 *
+	 * @param index the index
+	 * @param i which token on the line, starting at 0
+	 * @return the city's id, or -1 if there is no such city
+	 */
+	public int find(NameIndex index, int i) {
+		return index.find(buf, starts[i], ends[i]);
+	}
+
+	/**
+	 * Close the file
+	 *
+	 * @throws IOException if problem closing the file
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/*
+	 * private helper function
+	 */
+	private void map(long position) throws IOException {
+		base = position;
+		cursor = 0;
+		buf = channel.map(MapMode.READ_ONLY, position,
+				Math.min(WINDOW, size - position));
+	}
+
+	/*
+	 * private helper function, index of the next newline or the limit
+	 */
+	private int lineEnd(int from) {
+		int limit = buf.limit();
+		while(from < limit && buf.get(from) != '\n') from++;
+		return from;
+	}
+
+	/*
+	 * private helper function, the characters regex \s matches
+	 */
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' ||
+				b == 0x0b || b == '\f';
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+}
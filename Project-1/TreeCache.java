@@ -0,0 +1,189 @@
+//******************************************************************************
+//
+// File:    TreeCache.java
+// Package: ---
+// Unit:    Class TreeCache
+//
+//******************************************************************************
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class TreeCache keeps the {@link ShortestPathTree}s of the most recently
+ * used sources, up to a fixed number, so that routes fanning out from a
+ * busy source, such as a depot, cost one Dijkstra between them. It is safe
+ * for any number of threads at once.
+ * <P>
+ * The cache listens for updates to the graph and repairs every tree it
+ * keeps instead of throwing it away; see
+ * {@link ShortestPathTree#repair(Graph, int, int, double, double)}.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class TreeCache implements GraphListener {
+
+	// private data members
+	private final Merica america;
+	private final Trees trees;
+	private final ShortestPathTree.Repair scratch;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder repaired = new LongAdder();
+
+	/**
+	 * Construct a cache of trees over a graph, listening for its updates
+	 *
+	 * @param america the graph to search on a miss
+	 * @param capacity the most trees to keep
+	 */
+	public TreeCache(Merica america, int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.america = america;
+		this.trees = new Trees(capacity);
+		this.scratch = new ShortestPathTree.Repair(america.graph());
+		america.addListener(this);
+	}
+
+	/**
+	 * shortest path tree of a source, from the cache when possible
+	 * @param source the city every path starts from
+	 * @return shortest path tree
+	 */
+	public ShortestPathTree tree(City source) {
+		ShortestPathTree tree;
+		synchronized(trees) {
+			tree = trees.get(source.n);
+		}
+		if(tree != null) {
+			hits.increment();
+			return tree;
+		}
+		misses.increment();
+		Graph graph = america.graph();
+		tree = america.shortestPathTree(source);
+		synchronized(trees) {
+			// an update while searching would not have repaired this tree
+			if(america.graph() == graph) {
+				trees.put(source.n, tree);
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * shortest path, read from the source's tree
+	 * @param start
+	 * @param goal
+	 * @return shortest path
+	 */
+	public SearchResult route(City start, City goal) {
+		return tree(start).route(goal);
+	}
+
+	/**
+	 * Repair every cached tree an update to the graph changes
+	 *
+	 * @param graph the new version of the graph
+	 * @param a one end of the edge
+	 * @param b the other end of the edge
+	 * @param before weight of the edge before, infinity if it was added
+	 * @param after weight of the edge now, infinity if it was removed
+	 */
+	@Override
+	public void edgeChanged(Graph graph, int a, int b, double before,
+			double after) {
+		ShortestPathTree tree;
+		synchronized(trees) {
+			for(Map.Entry<Integer, ShortestPathTree> entry :
+					trees.entrySet()) {
+				tree = entry.getValue().repair(graph, a, b, before, after,
+						scratch);
+				if(tree != entry.getValue()) {
+					entry.setValue(tree);
+					repaired.increment();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of trees answered from the cache
+	 *
+	 * @return the number of hits
+	 */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of trees that had to be searched
+	 *
+	 * @return the number of misses
+	 */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Get the number of times an update changed a cached tree
+	 *
+	 * @return the number of repairs
+	 */
+	public long repaired() {
+		return repaired.sum();
+	}
+
+	/**
+	 * Get the number of trees in the cache
+	 *
+	 * @return the number of cached trees
+	 */
+	public int size() {
+		synchronized(trees) {
+			return trees.size();
+		}
+	}
+
+	/**
+	 * Forget every cached tree
+	 */
+	public void clear() {
+		synchronized(trees) {
+			trees.clear();
+		}
+	}
+
+	@Override
+	public String toString() {
+		long h = hits(), m = misses();
+		return String.format("%d hits, %d misses (%.1f%% hit rate), " +
+				"%d trees, %d repaired", h, m, 100.0 * h / Math.max(1, h + m),
+				size(), repaired());
+	}
+
+	/**
+	 * Class Trees is the least recently used trees, by source
+	 */
+	private static class Trees
+			extends LinkedHashMap<Integer, ShortestPathTree> {
+
+		private static final long serialVersionUID = 1L;
+		private final int capacity;
+
+		private Trees(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(
+				Map.Entry<Integer, ShortestPathTree> eldest) {
+			return size() > capacity;
+		}
+	}
+}
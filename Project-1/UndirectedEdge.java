@@ -24,12 +24,27 @@ public class UndirectedEdge {
 	private City a, b;
 	
 	/**
-	 * Construct an undirected edge
+	 * Construct an undirected edge and add it to both of its vertices
 	 * @param id a unique identifier to distinguish between other edges
 	 * @param a one vertex in the graph
 	 * @param b another vertex in the graph not equal to <I>a</I>
 	 */
 	public UndirectedEdge(int id, City a, City b) {
+		// distance = sqrt((lat1-lat2)*(lat1-lat2)+(lon1-lon2)*(lon1-lon2))*100 
+		this(id, a, b, a.distanceTo(b));
+		this.a.addEdge(this);
+		this.b.addEdge(this);
+	}
+	
+	/**
+	 * Construct an undirected edge with a given weight, without adding it
+	 * to its vertices
+	 * @param id a unique identifier to distinguish between other edges
+	 * @param a one vertex in the graph
+	 * @param b another vertex in the graph not equal to <I>a</I>
+	 * @param weight weight of the edge
+	 */
+	public UndirectedEdge(int id, City a, City b, double weight) {
 		this.id = id;
 		// enforce that a.n is always less than b.n
 		if(a.n < b.n) {
@@ -41,11 +56,25 @@ public class UndirectedEdge {
 		} else {
 			throw new IllegalArgumentException("Cannot have self loop");
 		}
-		// distance = sqrt((lat1-lat2)*(lat1-lat2)+(lon1-lon2)*(lon1-lon2))*100 
-		weight = 
-		Math.sqrt((a.lat-b.lat)*(a.lat-b.lat)+(a.lon-b.lon)*(a.lon-b.lon))*100;
-		this.a.addEdge(this);
-		this.b.addEdge(this);
+		this.weight = weight;
+	}
+	
+	/**
+	 * Get the vertex with the smaller identifier
+	 * 
+	 * @return one vertex connected to this edge
+	 */
+	public City a() {
+		return a;
+	}
+	
+	/**
+	 * Get the vertex with the larger identifier
+	 * 
+	 * @return the other vertex connected to this edge
+	 */
+	public City b() {
+		return b;
 	}
 	
 	/**
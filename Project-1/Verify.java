@@ -0,0 +1,904 @@
+//******************************************************************************
+//
+// File:    Verify.java
+// Package: ---
+// Unit:    Class Verify
+//
+//******************************************************************************
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Class Verify checks the searches and the data structures behind them, so
+ * that a change which breaks an answer shows up before it is deployed.
+ * The searches must reproduce the expected outputs kept with the project,
+ * and on random graphs they must agree with answers worked out the slow,
+ * obvious way: a Dijkstra over an adjacency matrix, or a scan over every
+ * city.
+ * <P>
+ * Usage: java Verify [vertices]
+ * <BR>run from the directory holding city.dat, edge.dat and the in/out
+ * fixtures; the random graphs have the given number of cities (300 by
+ * default). Every failed check is reported, and the exit status is 1 if
+ * any failed.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Verify {
+
+	private static final String EDGE_DATA = "edge.dat";
+	private static final String CITY_DATA = "city.dat";
+	private static final String[][] FIXTURES = {{"in1", "out1"},
+			{"in2", "out2"}};
+	private static final long SEED = 42;
+	private static final int GRAPHS = 4;
+	private static final double EPSILON = 1e-9;
+	private static final int UPDATES = 100;
+	private static final int QUERIES = 200;
+	private static final String[] CACHES = {"route cache",
+			"route cache with sub-paths"};
+
+	// private data members
+	private final int vertices;
+	private int passed, failed;
+
+	/*
+	 * private constructor
+	 */
+	private Verify(int vertices) {
+		this.vertices = vertices;
+	}
+
+	/**
+	 * Interface Check is one group of checks
+	 */
+	private interface Check {
+		/**
+		 * run the checks
+		 * @throws Exception if a check fails
+		 */
+		void run() throws Exception;
+	}
+
+	/*
+	 * private helper function, run a group of checks and report it
+	 */
+	private void check(String name, Check check) {
+		try {
+			check.run();
+			passed++;
+			System.out.println("ok     " + name);
+		} catch (Exception e) {
+			failed++;
+			System.out.println("FAILED " + name + ": " + e);
+		} catch (AssertionError e) {
+			failed++;
+			System.out.println("FAILED " + name + ": " + e.getMessage());
+		}
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void expect(boolean condition, String message) {
+		if(!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	/*
+	 * private helper function, distances are sums of the same weights in
+	 * possibly different orders
+	 */
+	private static boolean same(double a, double b) {
+		return a == b || Math.abs(a - b) <= EPSILON * Math.max(1, Math.abs(a));
+	}
+
+	/*
+	 * private helper function, a random graph over the continental US:
+	 * every city is joined to some of its neighbors in a jittered grid,
+	 * with a few long roads, and some cities are left without a road
+	 */
+	private static Merica random(int vertices, long seed, Metric metric) {
+		Random random = new Random(seed);
+		int side = (int) Math.ceil(Math.sqrt(vertices));
+		double dlat = 24.0 / side, dlon = 58.0 / side;
+		GraphBuilder builder = new GraphBuilder(metric);
+		for(int i = 0; i < vertices; i++) {
+			int row = i / side, col = i % side;
+			builder.addCity("V" + seed + "-" + i, "XX",
+				25 + (row + random.nextDouble()) * dlat,
+				67 + (col + random.nextDouble()) * dlon);
+		}
+		for(int i = 0; i < vertices; i++) {
+			int col = i % side;
+			if(col + 1 < side && i + 1 < vertices &&
+					random.nextInt(5) > 0) {
+				builder.addEdge(i, i + 1);
+			}
+			if(i + side < vertices && random.nextInt(5) > 0) {
+				builder.addEdge(i, i + side);
+			}
+			if(random.nextInt(20) == 0) {
+				int j = random.nextInt(vertices);
+				if(j != i) {
+					builder.addEdge(i, j);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/*
+	 * private helper function, the shortest distance from a source to
+	 * every city, by Dijkstra over an adjacency matrix of the edge list
+	 */
+	private static double[] oracle(Merica america, int source) {
+		int v = america.v;
+		double[][] weight = new double[v][v];
+		for(double[] row : weight) {
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+		}
+		int a, b;
+		for(UndirectedEdge edge : america.edges()) {
+			a = edge.a().n;
+			b = edge.b().n;
+			weight[a][b] = weight[b][a] = Math.min(weight[a][b],
+					edge.weight);
+		}
+		double[] dist = new double[v];
+		boolean[] done = new boolean[v];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		dist[source] = 0;
+		for(int k = 0; k < v; k++) {
+			int u = -1;
+			for(int w = 0; w < v; w++) {
+				if(!done[w] && (u < 0 || dist[w] < dist[u])) {
+					u = w;
+				}
+			}
+			if(dist[u] == Double.POSITIVE_INFINITY) {
+				break;
+			}
+			done[u] = true;
+			for(int w = 0; w < v; w++) {
+				dist[w] = Math.min(dist[w], dist[u] + weight[u][w]);
+			}
+		}
+		return dist;
+	}
+
+	/*
+	 * private helper function, whether a result is a real path from start
+	 * to goal with the expected length, or one that does not reach the
+	 * goal when it cannot be reached
+	 */
+	private static void expectPath(Merica america, SearchResult result,
+			int start, int goal, double expected, String what) {
+		Graph graph = america.graph();
+		expect(result.city(0).n == start, what + " does not start at " +
+				start);
+		if(expected == Double.POSITIVE_INFINITY) {
+			expect(result.city(result.hops()).n != goal, what +
+					" found a path from " + start + " to unreachable " +
+					goal);
+			return;
+		}
+		expect(result.city(result.hops()).n == goal, what + " from " +
+				start + " does not end at " + goal);
+		double length = 0;
+		for(int i = 0; i < result.hops(); i++) {
+			length += graph.weight(result.city(i).n, result.city(i + 1).n);
+		}
+		expect(same(length, expected) && same(result.distance(), expected),
+				what + " from " + start + " to " + goal + " is " + length +
+				", expected " + expected);
+	}
+
+	/*
+	 * private helper function, whether two graphs have the same rows
+	 */
+	private static void expectSame(Graph expected, Graph actual,
+			String what) {
+		expect(expected.v == actual.v &&
+				Arrays.equals(expected.offsets, actual.offsets) &&
+				Arrays.equals(expected.neighbors, actual.neighbors) &&
+				Arrays.equals(expected.weights, actual.weights) &&
+				Arrays.equals(expected.edgeIds, actual.edgeIds) &&
+				Arrays.equals(expected.rank, actual.rank),
+				what + " differs from the graph it should match");
+	}
+
+	/*
+	 * private helper function, the searches must write exactly the
+	 * expected outputs for the fixtures
+	 */
+	private void fixtures() {
+		for(final String[] fixture : FIXTURES) {
+			check("Search " + fixture[0], new Check() {
+				@Override
+				public void run() throws Exception {
+					Path out = Files.createTempFile("verify", ".out");
+					try {
+						Search.main(new String[] {fixture[0],
+								out.toString()});
+						expect(Arrays.equals(Files.readAllBytes(out),
+								Files.readAllBytes(Paths.get(fixture[1]))),
+								"output differs from " + fixture[1]);
+					} finally {
+						Files.delete(out);
+					}
+				}
+			});
+		}
+	}
+
+	/*
+	 * private helper function, every edge appears once in each of its
+	 * cities' rows, and the rows are sorted by rank then edge id
+	 */
+	private void csr(final String name, final Merica america) {
+		check("CSR rows of " + name, new Check() {
+			@Override
+			public void run() {
+				Graph graph = america.graph();
+				List<UndirectedEdge> edges = america.edges();
+				expect(graph.offsets[0] == 0 &&
+						graph.offsets[graph.v] == 2 * edges.size(),
+						"rows do not hold every edge twice");
+				for(UndirectedEdge edge : edges) {
+					expect(holds(graph, edge.a().n, edge.b().n, edge) &&
+							holds(graph, edge.b().n, edge.a().n, edge),
+							"edge " + edge.id + " is missing from a row");
+				}
+				int[] n = graph.neighbors, ids = graph.edgeIds;
+				for(int u = 0; u < graph.v; u++) {
+					for(int i = graph.offsets[u] + 1;
+							i < graph.offsets[u + 1]; i++) {
+						expect(graph.rank[n[i - 1]] < graph.rank[n[i]] ||
+								n[i - 1] == n[i] && ids[i - 1] < ids[i],
+								"row " + u + " is out of order");
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, whether u's row leads to w by an edge
+	 */
+	private static boolean holds(Graph graph, int u, int w,
+			UndirectedEdge edge) {
+		for(int i = graph.offsets[u]; i < graph.offsets[u + 1]; i++) {
+			if(graph.edgeIds[i] == edge.id) {
+				return graph.neighbors[i] == w &&
+						graph.weights[i] == edge.weight;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * private helper function, A* from every city agrees with the oracle
+	 */
+	private void aStar(final String name, final Merica america) {
+		check("A* on " + name, new Check() {
+			@Override
+			public void run() {
+				for(City start : america.cities) {
+					double[] dist = oracle(america, start.n);
+					for(City goal : america.cities) {
+						expectPath(america, america.aStar(start, goal),
+								start.n, goal.n, dist[goal.n], "A*");
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, bidirectional A* from every city, on one
+	 * thread and on two, agrees with the oracle
+	 */
+	private void bidirectional(final String name, final Merica america) {
+		check("bidirectional A* on " + name, new Check() {
+			@Override
+			public void run() {
+				for(City start : america.cities) {
+					double[] dist = oracle(america, start.n);
+					for(City goal : america.cities) {
+						expectPath(america, america.bidirectionalAStar(start,
+								goal, false), start.n, goal.n, dist[goal.n],
+								"bidirectional A*");
+						expectPath(america, america.bidirectionalAStar(start,
+								goal, true), start.n, goal.n, dist[goal.n],
+								"parallel bidirectional A*");
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, a contraction hierarchy agrees with the
+	 * oracle, reads back from its file the same, and a damaged file is
+	 * refused
+	 */
+	private void hierarchy(final String name, final Merica america) {
+		check("contraction hierarchy on " + name, new Check() {
+			@Override
+			public void run() throws Exception {
+				ContractionHierarchy built =
+						ContractionHierarchy.build(america);
+				Path file = Files.createTempFile("verify", ".ch");
+				try {
+					built.save(file);
+					ContractionHierarchy loaded =
+							ContractionHierarchy.load(file, america);
+					for(City start : america.cities) {
+						double[] dist = oracle(america, start.n);
+						for(City goal : america.cities) {
+							expectPath(america, built.route(start, goal),
+									start.n, goal.n, dist[goal.n],
+									"contraction hierarchy");
+							expectPath(america, loaded.route(start, goal),
+									start.n, goal.n, dist[goal.n],
+									"loaded contraction hierarchy");
+						}
+					}
+					byte[] bytes = Files.readAllBytes(file);
+					Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+					expectRefused(file, america, "a truncated hierarchy");
+					if(built.edgeCount() > 0) {
+						// the first upward edge leads to a city that is not
+						// there
+						ByteBuffer.wrap(bytes).putInt(16 + 8 * america.v + 4,
+								america.v);
+						Files.write(file, bytes);
+						expectRefused(file, america, "a damaged hierarchy");
+					}
+				} finally {
+					Files.delete(file);
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void expectRefused(Path file, Merica america,
+			String what) {
+		try {
+			ContractionHierarchy.load(file, america);
+		} catch (IOException e) {
+			return;
+		}
+		throw new AssertionError(what + " was loaded");
+	}
+
+	/*
+	 * private helper function, a snapshot reads back as the same graph,
+	 * and a damaged snapshot is refused
+	 */
+	private void snapshot(final String name, final Merica america) {
+		check("snapshot of " + name, new Check() {
+			@Override
+			public void run() throws Exception {
+				Path file = Files.createTempFile("verify", ".snap");
+				try {
+					Snapshot.write(america, file);
+					Merica read = Snapshot.read(file);
+					Graph graph = america.graph();
+					expectSame(graph, read.graph(), "the snapshot");
+					expect(read.graph().metric == graph.metric &&
+							Arrays.equals(read.graph().lat, graph.lat) &&
+							Arrays.equals(read.graph().lon, graph.lon),
+							"the snapshot moved the cities");
+					for(City city : america.cities) {
+						City copy = read.cities.get(city.n);
+						expect(copy.name.equals(city.name) &&
+								copy.state.equals(city.state),
+								"the snapshot renamed city " + city.n);
+					}
+					expectSameEdges(america.edges(), read.edges(),
+							"the snapshot");
+					byte[] bytes = Files.readAllBytes(file);
+					Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+					expectNoSnapshot(file, "a truncated snapshot");
+					if(graph.neighbors.length > 0) {
+						// the first row leads to a city that is not there
+						ByteBuffer buffer = ByteBuffer.wrap(bytes);
+						int v = graph.v, pool = buffer.getInt(20);
+						buffer.putInt(24 + 8 * (v + 1) + pool + 16 * v +
+								4 * v + 4 * (v + 1), v);
+						Files.write(file, bytes);
+						expectNoSnapshot(file, "a damaged snapshot");
+					}
+				} finally {
+					Files.delete(file);
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function
+	 */
+	private static void expectNoSnapshot(Path file, String what) {
+		try {
+			Snapshot.read(file);
+		} catch (IOException e) {
+			return;
+		}
+		throw new AssertionError(what + " was read");
+	}
+
+	/*
+	 * private helper function, whether two edge lists hold the same edges
+	 * in the same order
+	 */
+	private static void expectSameEdges(List<UndirectedEdge> expected,
+			List<UndirectedEdge> actual, String what) {
+		expect(expected.size() == actual.size(), what + " has " +
+				actual.size() + " edges, expected " + expected.size());
+		UndirectedEdge e, a;
+		for(int i = 0; i < expected.size(); i++) {
+			e = expected.get(i);
+			a = actual.get(i);
+			expect(e.id == a.id && e.a().n == a.a().n &&
+					e.b().n == a.b().n && e.weight == a.weight,
+					what + " differs at edge " + e.id);
+		}
+	}
+
+	/*
+	 * private helper function, the tokenizer splits every line of a file
+	 * as a regular expression would, and reads the same lines when the
+	 * file is split into pieces
+	 */
+	private void tokenizer(final Path file) {
+		check("tokenizer on " + file.getFileName(), new Check() {
+			@Override
+			public void run() throws Exception {
+				String text = new String(Files.readAllBytes(file),
+						Charset.defaultCharset());
+				ArrayList<String> lines = new ArrayList<String>(
+						Arrays.asList(text.split("\n", -1)));
+				if(text.isEmpty() || text.endsWith("\n")) {
+					lines.remove(lines.size() - 1);
+				}
+				for(int pieces = 1; pieces <= 4; pieces++) {
+					long[] bounds = Tokenizer.split(file, pieces);
+					int n = 0;
+					for(int p = 0; p < pieces; p++) {
+						Tokenizer in = new Tokenizer(file, bounds[p],
+								bounds[p + 1]);
+						try {
+							while(in.nextLine()) {
+								expect(n < lines.size(), "read past the end");
+								expectTokens(in, lines.get(n++));
+							}
+						} finally {
+							in.close();
+						}
+					}
+					expect(n == lines.size(), "read " + n + " lines in " +
+							pieces + " pieces, expected " + lines.size());
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, whether the tokenizer's line holds the
+	 * tokens of a line of text
+	 */
+	private static void expectTokens(Tokenizer in, String line) {
+		String trimmed = line.replaceAll("^\\s+", "");
+		String[] tokens = trimmed.isEmpty() ? new String[0] :
+				trimmed.split("\\s+");
+		int n = Math.min(tokens.length, in.tokens());
+		expect(n == in.tokens(), "line " + in.line() + " has " +
+				in.tokens() + " tokens, expected " + tokens.length);
+		for(int i = 0; i < n; i++) {
+			expect(in.string(i).equals(tokens[i]), "line " + in.line() +
+					" token " + i + " is " + in.string(i) + ", expected " +
+					tokens[i]);
+		}
+	}
+
+	/*
+	 * private helper function, the tokenizer parses numbers written every
+	 * way the data files might hold them to exactly the value the
+	 * library would
+	 */
+	private void numbers(final Path dir) {
+		check("tokenizer numbers", new Check() {
+			@Override
+			public void run() throws Exception {
+				Random random = new Random(SEED);
+				ArrayList<String> numbers = new ArrayList<String>();
+				for(int i = 0; i < 20000; i++) {
+					double x = (random.nextDouble() - 0.5) *
+							Math.pow(10, random.nextInt(16) - 6);
+					switch(i % 4) {
+					case 0: numbers.add(Double.toString(x)); break;
+					case 1: numbers.add(String.format(Locale.ROOT, "%.6f", x));
+						break;
+					case 2: numbers.add(Long.toString((long) (x * 1000)));
+						break;
+					default: numbers.add(String.format(Locale.ROOT, "%.3e", x));
+					}
+				}
+				Path file = dir.resolve("numbers.txt");
+				StringBuilder text = new StringBuilder();
+				for(String number : numbers) {
+					text.append(number).append('\t').append(number)
+						.append('\n');
+				}
+				Files.write(file, text.toString().getBytes(
+						StandardCharsets.US_ASCII));
+				Tokenizer in = new Tokenizer(file);
+				try {
+					for(String number : numbers) {
+						expect(in.nextLine(), "missing line");
+						expect(Double.doubleToLongBits(in.parseDouble(1)) ==
+								Double.doubleToLongBits(
+								Double.parseDouble(number)), number +
+								" was parsed as " + in.parseDouble(1));
+					}
+				} finally {
+					in.close();
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, building a graph from the data files on
+	 * any number of threads gives the graph parsing them on one does
+	 */
+	private void builder(final Path city, final Path edge) {
+		check("parallel build of " + edge.getFileName(), new Check() {
+			@Override
+			public void run() throws Exception {
+				for(Metric metric : Metric.values()) {
+					Merica serial = DataParser.load(city.toString(),
+							edge.toString(), metric);
+					for(int threads : new int[] {1, 2, 3, 8}) {
+						Merica parallel = ParallelGraphBuilder.load(
+								city.toString(), edge.toString(), metric,
+								threads);
+						String what = "the graph built on " + threads +
+								" threads";
+						expectSame(serial.graph(), parallel.graph(), what);
+						expectSameEdges(serial.edges(), parallel.edges(),
+								what);
+						for(City c : serial.cities) {
+							expect(parallel.getCity(c.name).n == c.n, what +
+									" lost city " + c.name);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, check reading the data files, the bundled
+	 * ones and generated ones
+	 */
+	private void dataFiles(Path dir) throws IOException {
+		ArrayList<Path[]> files = new ArrayList<Path[]>();
+		if(Files.exists(Paths.get(CITY_DATA))) {
+			files.add(new Path[] {Paths.get(CITY_DATA), Paths.get(EDGE_DATA)});
+		}
+		for(Generator.Mode mode : Generator.Mode.values()) {
+			Path city = dir.resolve(mode.name().toLowerCase(Locale.ROOT) +
+					"-" + CITY_DATA);
+			Path edge = dir.resolve(mode.name().toLowerCase(Locale.ROOT) +
+					"-" + EDGE_DATA);
+			Writer cityOut = Files.newBufferedWriter(city,
+					StandardCharsets.US_ASCII);
+			Writer edgeOut = Files.newBufferedWriter(edge,
+					StandardCharsets.US_ASCII);
+			try {
+				new Generator(mode, vertices, 6, 0.5, 4, SEED)
+					.write(cityOut, edgeOut);
+			} finally {
+				cityOut.close();
+				edgeOut.close();
+			}
+			files.add(new Path[] {city, edge});
+		}
+		for(Path[] pair : files) {
+			tokenizer(pair[0]);
+			tokenizer(pair[1]);
+			builder(pair[0], pair[1]);
+		}
+		numbers(dir);
+	}
+
+	/*
+	 * private helper function, the spatial index must find the same
+	 * nearest cities and the same cities in a box as a scan over every
+	 * city, for random positions and for positions right on a city
+	 */
+	private void spatial(final String name, final Merica america) {
+		check("spatial index of " + name, new Check() {
+			@Override
+			public void run() {
+				double south = Double.POSITIVE_INFINITY, west = south;
+				double north = Double.NEGATIVE_INFINITY, east = north;
+				for(City city : america.cities) {
+					south = Math.min(south, city.lat);
+					west = Math.min(west, city.lon);
+					north = Math.max(north, city.lat);
+					east = Math.max(east, city.lon);
+				}
+				Random random = new Random(SEED);
+				double lat, lon, lat2, lon2;
+				City city;
+				for(int i = 0; i < QUERIES; i++) {
+					city = america.cities.get(random.nextInt(america.v));
+					if(i % 4 == 0) {
+						lat = city.lat;
+						lon = city.lon;
+					} else {
+						lat = south - 1 + (north - south + 2) *
+								random.nextDouble();
+						lon = west - 1 + (east - west + 2) *
+								random.nextDouble();
+					}
+					Integer[] order = closest(america.graph(), lat, lon);
+					String at = " of " + lat + ", " + lon;
+					expect(america.nearest(lat, lon).n == order[0],
+							"the nearest city" + at + " is not " + order[0]);
+					int k = i % 8 == 1 ? 0 : random.nextInt(america.v + 4);
+					ArrayList<City> near = america.nearest(lat, lon, k);
+					expect(near.size() == Math.min(k, america.v),
+							near.size() + " of the " + k + " nearest" + at);
+					for(int j = 0; j < near.size(); j++) {
+						expect(near.get(j).n == order[j], "city " + j +
+								" nearest" + at + " is not " + order[j]);
+					}
+					// one corner on a city, so an edge of the box passes
+					// through it
+					lat2 = Math.max(city.lat, lat);
+					lon2 = Math.max(city.lon, lon);
+					lat = Math.min(city.lat, lat);
+					lon = Math.min(city.lon, lon);
+					boolean[] inside = new boolean[america.v];
+					int count = 0;
+					for(City c : america.cities) {
+						if(c.lat >= lat && c.lat <= lat2 && c.lon >= lon &&
+								c.lon <= lon2) {
+							inside[c.n] = true;
+							count++;
+						}
+					}
+					ArrayList<City> in = america.within(lat, lon, lat2, lon2);
+					expect(in.size() == count, in.size() + " cities in " +
+							"the box" + at + ", expected " + count);
+					for(City c : in) {
+						expect(inside[c.n], c.name + " is not in the box" + at);
+						inside[c.n] = false;
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * private helper function, every city, closest to a position first and
+	 * ties by id, measured in the coordinates the index splits on
+	 */
+	private static Integer[] closest(Graph graph, double lat, double lon) {
+		double[][] axes;
+		double[] q;
+		if(graph.metric == Metric.GREAT_CIRCLE) {
+			double phi = Math.toRadians(lat), lambda = Math.toRadians(lon);
+			axes = new double[][] {graph.x, graph.y, graph.z};
+			q = new double[] {Math.cos(phi) * Math.cos(lambda),
+					Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+		} else {
+			axes = new double[][] {graph.lat, graph.lon};
+			q = new double[] {lat, lon};
+		}
+		final double[] d = new double[graph.v];
+		Integer[] order = new Integer[graph.v];
+		double t;
+		for(int u = 0; u < graph.v; u++) {
+			for(int a = 0; a < axes.length; a++) {
+				t = q[a] - axes[a][u];
+				d[u] += t * t;
+			}
+			order[u] = u;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return d[a] != d[b] ? Double.compare(d[a], d[b]) : a - b;
+			}
+		});
+		return order;
+	}
+
+	/*
+	 * private helper function, after every random update the graph is the
+	 * one built from scratch out of the updated cities, every city lists
+	 * its roads in the order they were added, and searches agree with the
+	 * oracle. So do route caches, with and without sub-paths, that kept
+	 * paths from before the update, and shortest path trees repaired
+	 * rather than built again. The graph given is changed.
+	 */
+	private void updates(final String name, final Merica america) {
+		check("updates to " + name, new Check() {
+			@Override
+			public void run() {
+				Random random = new Random(SEED);
+				// small enough that paths are evicted as well as dropped
+				RouteCache[] caches = {
+					new RouteCache(america, america.v, false),
+					new RouteCache(america, america.v, true)
+				};
+				TreeCache trees = new TreeCache(america, 2);
+				City home = america.cities.get(0);
+				for(int i = 0; i < UPDATES; i++) {
+					// the first is an addition before the edge objects are
+					// made, which once put the new road ahead of older ones
+					update(america, random, i == 0);
+					expect(america.version() == i + 1, "version " +
+							america.version() + " after " + (i + 1) +
+							" updates");
+					expectSame(new Graph(america.cities,
+							new ArrayList<UndirectedEdge>(america.edges())),
+							america.graph(), "update " + i);
+					for(City city : america.cities) {
+						List<UndirectedEdge> roads = city.getEdges();
+						for(int k = 1; k < roads.size(); k++) {
+							expect(roads.get(k - 1).id < roads.get(k).id,
+									"the roads of " + city.name +
+									" are out of order after update " + i);
+						}
+					}
+					City start = america.cities.get(
+							random.nextInt(america.v));
+					double[] dist = oracle(america, start.n);
+					for(City goal : america.cities) {
+						expectPath(america, america.aStar(start, goal),
+								start.n, goal.n, dist[goal.n],
+								"A* after update " + i);
+						expectPath(america, america.bidirectionalAStar(start,
+								goal), start.n, goal.n, dist[goal.n],
+								"bidirectional A* after update " + i);
+					}
+					// the same start every time, so stale paths are asked for
+					for(City source : new City[] {home, start}) {
+						dist = oracle(america, source.n);
+						for(City goal : america.cities) {
+							for(int c = 0; c < caches.length; c++) {
+								expectPath(america, caches[c].aStar(source,
+										goal), source.n, goal.n, dist[goal.n],
+										CACHES[c] + " after update " + i);
+							}
+							expectPath(america, trees.route(source, goal),
+									source.n, goal.n, dist[goal.n],
+									"repaired tree after update " + i);
+						}
+					}
+				}
+				for(int c = 0; c < caches.length; c++) {
+					america.removeListener(caches[c]);
+					expect(caches[c].hits() > 0 &&
+							caches[c].invalidated() > 0, CACHES[c] +
+							" was never used or updated");
+				}
+				expect(caches[1].subPathHits() > 0,
+						"no query was answered from a sub-path");
+				america.removeListener(trees);
+				expect(trees.repaired() > 0, "no tree was repaired");
+			}
+		});
+	}
+
+	/*
+	 * private helper function, add, remove or reweight a random road, or
+	 * add one if told to
+	 */
+	private static void update(Merica america, Random random, boolean add) {
+		int kind = add ? 0 : random.nextInt(3);
+		if(kind == 0 || america.edges().isEmpty()) {
+			City a = america.cities.get(random.nextInt(america.v));
+			City b = america.cities.get(random.nextInt(america.v));
+			if(a == b) {
+				b = america.cities.get((a.n + 1) % america.v);
+			}
+			america.addEdge(a, b, america.graph().distance(a.n, b.n) *
+					(1 + random.nextDouble()));
+			return;
+		}
+		List<UndirectedEdge> edges = america.edges();
+		if(kind == 1) {
+			america.removeEdge(edges.get(random.nextInt(edges.size())));
+		} else {
+			UndirectedEdge edge = edges.get(random.nextInt(edges.size()));
+			america.reweight(edge, america.graph().distance(edge.a().n,
+					edge.b().n) * (1 + 2 * random.nextDouble()));
+		}
+	}
+
+	/*
+	 * private helper function, run every check on one graph
+	 */
+	private void graph(String name, Merica america) {
+		csr(name, america);
+		aStar(name, america);
+		bidirectional(name, america);
+		hierarchy(name, america);
+		snapshot(name, america);
+		spatial(name, america);
+	}
+
+	/**
+	 * main method
+	 * @param args [0] = number of cities in the random graphs, optional
+	 * @throws Exception if the bundled data cannot be read, or the
+	 * 			generated data cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		Verify verify = new Verify(args.length > 0 ?
+				Integer.parseInt(args[0]) : 300);
+		if(Files.exists(Paths.get(CITY_DATA)) &&
+				Files.exists(Paths.get(EDGE_DATA))) {
+			verify.fixtures();
+			verify.graph(CITY_DATA, DataParser.load(CITY_DATA, EDGE_DATA));
+			verify.updates(CITY_DATA, DataParser.load(CITY_DATA, EDGE_DATA));
+		} else {
+			System.err.println("No " + CITY_DATA + "/" + EDGE_DATA +
+					", skipping the fixtures");
+		}
+		Path dir = Files.createTempDirectory("verify");
+		try {
+			verify.dataFiles(dir);
+		} finally {
+			DirectoryStream<Path> files = Files.newDirectoryStream(dir);
+			try {
+				for(Path file : files) {
+					Files.delete(file);
+				}
+			} finally {
+				files.close();
+			}
+			Files.delete(dir);
+		}
+		for(int g = 0; g < GRAPHS; g++) {
+			Metric metric = g % 2 == 0 ? Metric.PLANAR : Metric.GREAT_CIRCLE;
+			String name = "random-" + g + "-" +
+					metric.name().toLowerCase(Locale.ROOT);
+			verify.graph(name, random(verify.vertices, SEED + g, metric));
+			verify.updates(name, random(verify.vertices, SEED + g, metric));
+		}
+		System.out.println(verify.passed + " passed, " + verify.failed +
+				" failed");
+		if(verify.failed > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -17,8 +17,9 @@ import java.util.ArrayList;
  */
 public class Vertex {
 
-	// private data members
-	private ArrayList<UndirectedEdge> edges = new ArrayList<UndirectedEdge>();
+	// private data members, replaced rather than changed once the graph
+	// is in use so the list a reader holds never changes
+	private volatile ArrayList<UndirectedEdge> edges = new ArrayList<UndirectedEdge>();
 	
 	/**
 	 * The unique identifier for this vertex
@@ -62,6 +63,27 @@ public class Vertex {
 	public void addEdge(UndirectedEdge e) {
 		this.edges.add(e);
 	}
+	
+	/**
+	 * Replace an edge of this vertex without changing the list readers
+	 * already hold, for updating a graph that is in use
+	 * 
+	 * @param old the edge to replace, or null to add <I>e</I> at the end
+	 * @param e the edge to put in its place, or null to remove <I>old</I>
+	 */
+	public void replaceEdge(UndirectedEdge old, UndirectedEdge e) {
+		ArrayList<UndirectedEdge> copy =
+				new ArrayList<UndirectedEdge>(this.edges);
+		int i = old == null ? -1 : copy.indexOf(old);
+		if(e == null) {
+			copy.remove(i);
+		} else if(i < 0) {
+			copy.add(e);
+		} else {
+			copy.set(i, e);
+		}
+		this.edges = copy;
+	}
 
 	/**
 	 * Compare another object to this one
@@ -0,0 +1,138 @@
+//******************************************************************************
+//
+// File:    Workspace.java
+// Package: ---
+// Unit:    Class Workspace
+//
+//******************************************************************************
+
+/**
+ * Class Workspace holds the scratch space one thread needs to run searches
+ * over a {@link Graph}. It is allocated once and reused for every query the
+ * thread answers, so searching does not grow the heap.
+ * <P>
+ * Each engine is made the first time it is asked for, so a thread that
+ * only ever runs A* never pays for the others. When the graph is updated
+ * the workspace moves to the new version and keeps the engines it has,
+ * since every version of a graph has the same vertices.
+ * <P>
+ * A Workspace must only be used by one thread at a time.
+ *
+ * @author Jimi Ford (jhf3617)
+ * @version 3-15-2015
+ */
+public class Workspace {
+
+	// private data members
+	private Graph graph;
+	private AStar astar;
+	private BidirectionalAStar bidirectional;
+	private BreadthFirst breadthFirst;
+	private DepthFirst depthFirst;
+	private Dijkstra dijkstra;
+
+	/**
+	 * Construct the scratch space for searching a graph
+	 *
+	 * @param graph the graph that will be searched
+	 */
+	public Workspace(Graph graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Search another graph from now on. The engines already made are kept
+	 * when the graph is a version of the one before, with the same
+	 * vertices, and dropped otherwise.
+	 *
+	 * @param graph the graph that will be searched
+	 */
+	public void rebind(Graph graph) {
+		if(graph == this.graph) {
+			return;
+		}
+		// every version made by an update shares the vertices' ranks
+		if(graph.rank != this.graph.rank) {
+			astar = null;
+			bidirectional = null;
+			breadthFirst = null;
+			depthFirst = null;
+			dijkstra = null;
+		}
+		this.graph = graph;
+		if(astar != null) astar.rebind(graph);
+		if(bidirectional != null) bidirectional.rebind(graph);
+		if(breadthFirst != null) breadthFirst.rebind(graph);
+		if(depthFirst != null) depthFirst.rebind(graph);
+		if(dijkstra != null) dijkstra.rebind(graph);
+	}
+
+	/**
+	 * Get the version of the graph the engines search
+	 *
+	 * @return the graph
+	 */
+	public Graph graph() {
+		return graph;
+	}
+
+	/**
+	 * Get the A* engine
+	 *
+	 * @return the A* engine
+	 */
+	public AStar astar() {
+		if(astar == null) {
+			astar = new AStar(graph);
+		}
+		return astar;
+	}
+
+	/**
+	 * Get the bidirectional A* engine
+	 *
+	 * @return the bidirectional A* engine
+	 */
+	public BidirectionalAStar bidirectional() {
+		if(bidirectional == null) {
+			bidirectional = new BidirectionalAStar(graph);
+		}
+		return bidirectional;
+	}
+
+	/**
+	 * Get the breadth first search engine
+	 *
+	 * @return the breadth first search engine
+	 */
+	public BreadthFirst breadthFirst() {
+		if(breadthFirst == null) {
+			breadthFirst = new BreadthFirst(graph);
+		}
+		return breadthFirst;
+	}
+
+	/**
+	 * Get the depth first search engine
+	 *
+	 * @return the depth first search engine
+	 */
+	public DepthFirst depthFirst() {
+		if(depthFirst == null) {
+			depthFirst = new DepthFirst(graph);
+		}
+		return depthFirst;
+	}
+
+	/**
+	 * Get the Dijkstra engine, for shortest path trees
+	 *
+	 * @return the Dijkstra engine
+	 */
+	public Dijkstra dijkstra() {
+		if(dijkstra == null) {
+			dijkstra = new Dijkstra(graph);
+		}
+		return dijkstra;
+	}
+}